@@ -0,0 +1,57 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom.benchmarks;
+
+import com.unimelb.swen30006.mailroom.MailItem;
+import com.unimelb.swen30006.mailroom.MailSource;
+import com.unimelb.swen30006.mailroom.exceptions.SourceExhaustedException;
+import com.unimelb.swen30006.mailroom.samples.SimpleMailGenerator;
+
+/**
+ * Shared fixtures for the benchmarks, generating the same mail for every trial.
+ */
+final class BenchmarkMail {
+
+    /** The seed used for all benchmark mail */
+    static final long SEED = 12345;
+
+    private BenchmarkMail() {
+    }
+
+    /**
+     * Generate mail items addressed across a range of floors
+     * @param minFloor the lowest floor
+     * @param maxFloor the highest floor
+     * @param count the number of items
+     * @return the generated items
+     */
+    static MailItem[] generate(int minFloor, int maxFloor, int count) {
+        MailSource source = new SimpleMailGenerator(minFloor, maxFloor, MailItem.MailPriority.values(),
+                MailItem.MailType.values(), count, SEED);
+        MailItem[] items = new MailItem[count];
+        try {
+            for (int i = 0; i < count; i++) {
+                items[i] = source.nextItem();
+            }
+        } catch (SourceExhaustedException e) {
+            throw new IllegalStateException(e);
+        }
+        return items;
+    }
+
+    /**
+     * Generate letters of a single unit each, so a box of a given size holds that many items
+     * @param minFloor the lowest floor
+     * @param maxFloor the highest floor
+     * @param count the number of letters
+     * @return the generated letters
+     */
+    static MailItem[] letters(int minFloor, int maxFloor, int count) {
+        MailItem[] items = generate(minFloor, maxFloor, count);
+        for (int i = 0; i < count; i++) {
+            items[i] = new MailItem(MailItem.MailType.Letter, items[i].priority, items[i].floor, items[i].adressee, 1);
+        }
+        return items;
+    }
+}
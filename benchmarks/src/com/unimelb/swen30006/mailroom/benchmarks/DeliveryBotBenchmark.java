@@ -0,0 +1,76 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom.benchmarks;
+
+import com.unimelb.swen30006.mailroom.DeliveryBot;
+import com.unimelb.swen30006.mailroom.MailItem;
+import com.unimelb.swen30006.mailroom.MailStorage;
+import com.unimelb.swen30006.mailroom.StorageBox;
+import com.unimelb.swen30006.mailroom.samples.SimpleMailStorage;
+import com.unimelb.swen30006.mailroom.strategies.DeliveryStrategyOne;
+import com.unimelb.swen30006.mailroom.strategies.SelectionStrategyOne;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for stepping a delivery bot, measured over the delivery of one full box from
+ * picking it up to returning to the mail room, and for an idle bot with nothing to deliver.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeliveryBotBenchmark {
+
+    /** The number of letters in the box being delivered */
+    @Param({"20", "200"})
+    public int boxSize;
+
+    private static final int MAIL_ROOM_LEVEL = 2;
+
+    private MailItem[] letters;
+    private DeliveryBot bot;
+    private DeliveryBot idleBot;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        this.letters = BenchmarkMail.letters(1, 200, boxSize);
+        MailStorage empty = new SimpleMailStorage(1, boxSize);
+        this.idleBot = new DeliveryBot(new SelectionStrategyOne(1, boxSize), new DeliveryStrategyOne(),
+                empty, MAIL_ROOM_LEVEL);
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() throws Exception {
+        // A single full box, which the selection strategy will always pick
+        MailStorage storage = new SimpleMailStorage(1, boxSize);
+        storage.createBox("0");
+        StorageBox box = storage.retrieveBox("0");
+        for (MailItem item : this.letters) {
+            box.addItem(item);
+        }
+        this.bot = new DeliveryBot(new SelectionStrategyOne(1, boxSize),
+                new DeliveryStrategyOne(), storage, MAIL_ROOM_LEVEL);
+    }
+
+    @Benchmark
+    public int deliverBox() {
+        int steps = 1;
+        this.bot.step();
+        while (this.bot.isDelivering()) {
+            this.bot.step();
+            steps++;
+        }
+        return steps;
+    }
+
+    @Benchmark
+    public boolean stepIdle() {
+        this.idleBot.step();
+        return this.idleBot.isWaiting();
+    }
+}
@@ -0,0 +1,65 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom.benchmarks;
+
+import com.unimelb.swen30006.mailroom.SchedulerType;
+import com.unimelb.swen30006.mailroom.Simulation;
+import com.unimelb.swen30006.mailroom.SimulationConfig;
+import com.unimelb.swen30006.mailroom.StatisticsAggregator;
+import com.unimelb.swen30006.mailroom.StorageType;
+import com.unimelb.swen30006.mailroom.StrategyFactory;
+import com.unimelb.swen30006.mailroom.StrategySet;
+import com.unimelb.swen30006.mailroom.samples.MailDataset;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks a complete simulation run of each building profile, with the same predictable mail
+ * and strategies as the Simulation driver. The mail is generated once per trial, as the driver does.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimulationBenchmark {
+
+    /** The building profile to simulate */
+    @Param({"small_building", "medium_building", "big_building"})
+    public String building;
+
+    /** How the simulation is stepped through time */
+    @Param({"LOCKSTEP", "EVENTS", "THREADS"})
+    public SchedulerType scheduler;
+
+    /** The kind of storage used */
+    @Param({"SIMPLE", "SLOTS", "CONCURRENT"})
+    public StorageType storageType;
+
+    /** The largest number of items sorted in each step */
+    @Param({"1", "16"})
+    public int sortThroughput;
+
+    /** Whether bots take ready boxes from a central dispatcher rather than each selecting boxes */
+    @Param({"false", "true"})
+    public boolean dispatch;
+
+    private SimulationConfig config;
+    private StrategyFactory strategies;
+    private MailDataset mail;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.config = SimulationConfig.forBuilding(building).withSortThroughput(sortThroughput);
+        this.strategies = StrategySet.forBuilding(building).factoryFor(config);
+        this.mail = MailDataset.generate(config.minFloor, config.maxFloor, config.numMail, BenchmarkMail.SEED);
+    }
+
+    @Benchmark
+    public StatisticsAggregator run() {
+        return Simulation.runOnce(config, mail, strategies, scheduler, storageType, false, dispatch, null, null);
+    }
+}
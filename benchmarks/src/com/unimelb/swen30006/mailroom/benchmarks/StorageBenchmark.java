@@ -0,0 +1,90 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom.benchmarks;
+
+import com.unimelb.swen30006.mailroom.MailItem;
+import com.unimelb.swen30006.mailroom.ObjectStorageBox;
+import com.unimelb.swen30006.mailroom.PackedStorageBox;
+import com.unimelb.swen30006.mailroom.StorageBox;
+import com.unimelb.swen30006.mailroom.samples.SimpleMailStorage;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for producing storage summaries, both when nothing has changed since the last call
+ * and when a box has just been changed, as happens after every sorted item, with both plain and packed boxes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StorageBenchmark {
+
+    /** The number of boxes in storage */
+    @Param({"10", "50"})
+    public int numBoxes;
+
+    /** The number of letters in each box */
+    @Param({"20", "200"})
+    public int boxSize;
+
+    /** Whether boxes hold their mail packed into primitive arrays */
+    @Param({"false", "true"})
+    public boolean packed;
+
+    private StorageBox box;
+    private SimpleMailStorage storage;
+    private StorageBox changing;
+    private MailItem extra;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        MailItem[] letters = BenchmarkMail.letters(1, 200, boxSize);
+        this.box = packed ? new PackedStorageBox(boxSize) : new ObjectStorageBox(boxSize);
+        for (MailItem item : letters) {
+            this.box.addItem(item);
+        }
+
+        // Fill every box but the last, which is left with room for one letter to come and go
+        this.storage = new SimpleMailStorage(numBoxes, boxSize, packed);
+        for (int b = 0; b < numBoxes; b++) {
+            String id = String.valueOf(b);
+            this.storage.createBox(id);
+            StorageBox stored = this.storage.retrieveBox(id);
+            for (int i = 0; i < letters.length - 1; i++) {
+                stored.addItem(letters[i]);
+            }
+        }
+        this.changing = this.storage.retrieveBox(String.valueOf(numBoxes - 1));
+        this.extra = letters[letters.length - 1];
+    }
+
+    @Benchmark
+    public StorageBox.Summary generateSummaryUnchanged() {
+        return this.box.generateSummary("box");
+    }
+
+    @Benchmark
+    public StorageBox.Summary generateSummaryAfterChange() {
+        this.box.pollItem();
+        this.box.offerItem(this.extra);
+        return this.box.generateSummary("box");
+    }
+
+    @Benchmark
+    public StorageBox.Summary[] retrieveSummariesUnchanged() {
+        return this.storage.retrieveSummaries();
+    }
+
+    @Benchmark
+    public StorageBox.Summary[] retrieveSummariesAfterChange() {
+        if (!this.changing.offerItem(this.extra)) {
+            this.changing.pollItem();
+        }
+        return this.storage.retrieveSummaries();
+    }
+}
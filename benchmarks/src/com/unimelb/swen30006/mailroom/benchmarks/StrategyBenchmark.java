@@ -0,0 +1,79 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom.benchmarks;
+
+import com.unimelb.swen30006.mailroom.MailItem;
+import com.unimelb.swen30006.mailroom.MailStorage;
+import com.unimelb.swen30006.mailroom.ObjectStorageBox;
+import com.unimelb.swen30006.mailroom.StorageBox;
+import com.unimelb.swen30006.mailroom.exceptions.SourceExhaustedException;
+import com.unimelb.swen30006.mailroom.samples.SimpleMailStorage;
+import com.unimelb.swen30006.mailroom.strategies.DeliveryStrategyOne;
+import com.unimelb.swen30006.mailroom.strategies.SortingStrategyTwo;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the per-step decisions made by the delivery and sorting strategies.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StrategyBenchmark {
+
+    /** The number of letters in the box being delivered */
+    @Param({"20", "200"})
+    public int boxSize;
+
+    private static final int MAX_BOXES = 50;
+    private static final int MAX_MAIL_UNITS = 20;
+
+    private DeliveryStrategyOne deliveryStrategy;
+    private StorageBox box;
+
+    private MailItem[] mail;
+    private int next;
+    private MailStorage storage;
+    private SortingStrategyTwo sortingStrategy;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        this.deliveryStrategy = new DeliveryStrategyOne();
+        this.box = new ObjectStorageBox(boxSize);
+        for (MailItem item : BenchmarkMail.letters(1, 200, boxSize)) {
+            this.box.addItem(item);
+        }
+        this.mail = BenchmarkMail.generate(1, 200, 1000);
+        resetSorting();
+    }
+
+    /**
+     * Start sorting again into empty storage
+     */
+    private void resetSorting() {
+        this.storage = new SimpleMailStorage(MAX_BOXES, MAX_MAIL_UNITS);
+        this.sortingStrategy = new SortingStrategyTwo(MAX_BOXES, MAX_MAIL_UNITS);
+    }
+
+    @Benchmark
+    public int chooseNextFloor() throws SourceExhaustedException {
+        return this.deliveryStrategy.chooseNextFloor(100, this.box);
+    }
+
+    @Benchmark
+    public String assignStorage() {
+        MailItem item = this.mail[this.next];
+        this.next = (this.next + 1) % this.mail.length;
+        String identifier = this.sortingStrategy.tryAssignStorage(item, this.storage);
+        // Once storage has filled up, start again rather than simulating deliveries
+        if (identifier == null || !this.storage.findBox(identifier).offerItem(item)) {
+            resetSorting();
+        }
+        return identifier;
+    }
+}
@@ -0,0 +1,163 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hands boxes that are ready for delivery to idle delivery bots, in place of every bot scanning the summaries of
+ * storage with a selection strategy. A box is ready once it is full, once storage is full and it is the fullest
+ * box, or once the sorter has drained its source and the box holds any mail. Full boxes are queued as storage
+ * reports them, the rest are found when a bot asks, so a bot claims its next box in constant time, or in O(log n)
+ * time for n boxes when a box must be evicted from full storage.
+ *
+ * <p>
+ * Ready boxes wait on a lock free {@link HandoffQueue}, so bots may claim boxes from threads of their own. Each box
+ * is claimed from storage as it is handed out, so no two bots can take the same box. Bots that find nothing ready
+ * may wait for storage to change, as every way a box can become ready follows a storage event: the sorter drains
+ * its source as it stores its last item. Relies on the changes storage reports and on its index of boxes.
+ */
+public class BoxDispatcher implements StorageListener {
+
+    /** The storage boxes are taken from */
+    private final MailStorage storage;
+    /** The same storage if boxes are addressed by slot, otherwise null */
+    private final SlotStorage slotStorage;
+    /** The progress of the sorter feeding storage, which says when no more mail will arrive */
+    private final SortingProgress sorter;
+    /** The boxes ready to be taken, oldest first */
+    private final HandoffQueue<Ready> ready;
+    /** Set once the boxes left when the sorter drained have been queued */
+    private final AtomicBoolean flushed = new AtomicBoolean();
+
+    /**
+     * Create a dispatcher for the boxes of a storage unit, listening to it from now on
+     * @param storage the storage unit to take boxes from
+     * @param sorter the progress of the sorter feeding that storage
+     * @param maxBoxes the most boxes the storage unit holds
+     */
+    public BoxDispatcher(MailStorage storage, SortingProgress sorter, int maxBoxes) {
+        this.storage = storage;
+        this.slotStorage = (storage instanceof SlotStorage) ? (SlotStorage) storage : null;
+        this.sorter = sorter;
+        // Every box is queued at most once while it is stored, with room to spare for boxes evicted while queued
+        this.ready = new HandoffQueue<Ready>(Math.max(2 * maxBoxes, 1));
+        storage.addListener(this);
+    }
+
+    /**
+     * Take the next box that is ready for delivery out of storage
+     * @return the box, or null if no box is ready
+     */
+    public StorageBox claim() {
+        while (true) {
+            Ready next = this.ready.poll();
+            if (next == null) {
+                return claimUnqueued();
+            }
+            StorageBox box = take(next.identifier, next.slot, next.box);
+            if (box != null) {
+                return box;
+            }
+        }
+    }
+
+    /**
+     * Take a queued box whose floors overlap a range out of storage, for a bot with room to carry another box.
+     * Boxes passed over are queued again in the order they were in.
+     * @param lowestFloor the lowest floor the bot is going to
+     * @param highestFloor the highest floor the bot is going to
+     * @return the box, or null if no queued box overlaps the range
+     */
+    public StorageBox claimCompanion(int lowestFloor, int highestFloor) {
+        StorageBox claimed = null;
+        for (int queued = this.ready.size(); queued > 0; queued--) {
+            Ready next = this.ready.poll();
+            if (next == null) {
+                break;
+            }
+            if (claimed == null && next.box.overlaps(lowestFloor, highestFloor)) {
+                // A box no longer in storage is dropped, as it would be when claimed
+                claimed = take(next.identifier, next.slot, next.box);
+            } else {
+                enqueue(next);
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Queue each box as it fills
+     */
+    @Override
+    public void boxFull(String identifier, int slot) {
+        StorageBox box = (this.slotStorage != null) ? this.slotStorage.findSlot(slot) : this.storage.findBox(identifier);
+        enqueue(new Ready(identifier, slot, box));
+    }
+
+    /**
+     * Find a ready box that storage has not reported, evicting the fullest box when storage is full and flushing
+     * every box once the sorter has drained
+     * @return the box taken, or null if no box is ready
+     */
+    private StorageBox claimUnqueued() {
+        if (this.storage.isFull()) {
+            BoxIndex.Entry fullest = this.storage.findFullestBox();
+            if (fullest != null && fullest.lowestFloor() != Integer.MAX_VALUE) {
+                return take(fullest.identifier, fullest.slot, null);
+            }
+        }
+        if (this.sorter.isDrained() && this.flushed.compareAndSet(false, true)) {
+            // Full boxes are already queued
+            for (StorageBox.Summary summary : this.storage.retrieveSummaries()) {
+                if (summary.numItems > 0 && summary.remainingUnits > 0) {
+                    StorageBox box = (this.slotStorage != null) ? this.slotStorage.findSlot(summary.slot)
+                            : this.storage.findBox(summary.identifier);
+                    enqueue(new Ready(summary.identifier, summary.slot, box));
+                }
+            }
+            return claim();
+        }
+        return null;
+    }
+
+    /**
+     * Take a box out of storage for delivery
+     * @param identifier the identifier of the box
+     * @param slot the slot of the box, if storage is slot keyed
+     * @param expected the box expected to be stored there, or null to take whichever box is
+     * @return the box, or null if it is no longer in storage
+     */
+    private StorageBox take(String identifier, int slot, StorageBox expected) {
+        if (this.slotStorage != null) {
+            if (expected != null && this.slotStorage.findSlot(slot) != expected) {
+                return null;
+            }
+            return this.slotStorage.tryDeliverSlot(slot);
+        }
+        if (expected != null && this.storage.findBox(identifier) != expected) {
+            return null;
+        }
+        return this.storage.tryDeliverBox(identifier);
+    }
+
+    private void enqueue(Ready box) {
+        if (!this.ready.offer(box)) {
+            throw new IllegalStateException("More boxes ready than storage can hold");
+        }
+    }
+
+    /** A box waiting to be taken, remembered so a slot or name reused by a newer box is not taken instead */
+    private static final class Ready {
+        private final String identifier;
+        private final int slot;
+        private final StorageBox box;
+
+        private Ready(String identifier, int slot, StorageBox box) {
+            this.identifier = identifier;
+            this.slot = slot;
+            this.box = box;
+        }
+    }
+}
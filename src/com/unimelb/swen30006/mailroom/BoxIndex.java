@@ -0,0 +1,302 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+import com.unimelb.swen30006.mailroom.exceptions.BoxEmptyException;
+
+import java.util.*;
+
+/**
+ * An index of the boxes in a storage unit, ordered by the room left in each box, which answers "the box with the
+ * least room that still fits an item, among boxes suited to its floor" and "the fullest box" in O(log n) time
+ * rather than by scanning every summary. The index is kept up to date from the storage unit's events, so it is
+ * registered as one of its listeners. Mail taken out of a box that is still in storage moves the box back to a
+ * roomier bucket, and if it was for the box's lowest floor, the new lowest floor is read from the box itself.
+ *
+ * <p>
+ * Boxes are bucketed by their remaining units, and a segment tree over the buckets holds the highest lowest floor
+ * of any box in each range of buckets, so the first bucket holding a box for a floor can be found by descending the
+ * tree. Within a bucket boxes are ordered by lowest floor, and separately by slot, or by age if storage is not slot
+ * keyed.
+ * Not thread safe.
+ */
+public class BoxIndex implements StorageListener {
+
+    /** The value of a tree node covering no boxes */
+    private static final int NONE = Integer.MIN_VALUE;
+
+    /** The units each box holds when empty */
+    private final int boxSize;
+    /** Finds the stored boxes, to read their lowest floor after mail is taken out */
+    private final Boxes boxes;
+    /** The number of leaves in the tree, a power of two covering every possible number of remaining units */
+    private final int leaves;
+    /** The highest lowest floor of the boxes under each node, with the root at 1 and the leaves at the end */
+    private final int[] tree;
+    /** The boxes with each number of remaining units, by lowest floor */
+    private final TreeSet<Entry>[] byFloor;
+    /** The boxes with each number of remaining units, by slot or age */
+    private final TreeSet<Entry>[] byOrder;
+
+    /** Boxes by slot, for slot keyed storage */
+    private Entry[] slots = new Entry[16];
+    /** Boxes by identifier, for storage that is not slot keyed */
+    private final HashMap<String, Entry> named = new HashMap<String, Entry>();
+    /** The order given to the next box created in storage that is not slot keyed */
+    private long created = 0;
+    private int numBoxes = 0;
+
+    /** Used to search a bucket by floor */
+    private final Entry probe = new Entry(null, SlotStorage.NO_SLOT, Long.MIN_VALUE, 0);
+
+    /** Orders boxes by lowest floor, then by slot or age */
+    private static final Comparator<Entry> FLOOR_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            if (a.lowestFloor != b.lowestFloor) {
+                return Integer.compare(a.lowestFloor, b.lowestFloor);
+            }
+            return Long.compare(a.order, b.order);
+        }
+    };
+
+    /** Orders boxes by slot or age */
+    private static final Comparator<Entry> STORAGE_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            return Long.compare(a.order, b.order);
+        }
+    };
+
+    /**
+     * Create an empty index for boxes of the given size
+     * @param boxSize the number of units each box holds when empty
+     * @param boxes finds the boxes of the storage unit being indexed
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BoxIndex(int boxSize, Boxes boxes) {
+        this.boxSize = boxSize;
+        this.boxes = boxes;
+        int leaves = 1;
+        while (leaves < boxSize + 1) {
+            leaves *= 2;
+        }
+        this.leaves = leaves;
+        this.tree = new int[2 * leaves];
+        Arrays.fill(this.tree, NONE);
+        this.byFloor = new TreeSet[boxSize + 1];
+        this.byOrder = new TreeSet[boxSize + 1];
+        for (int units = 0; units <= boxSize; units++) {
+            this.byFloor[units] = new TreeSet<Entry>(FLOOR_ORDER);
+            this.byOrder[units] = new TreeSet<Entry>(STORAGE_ORDER);
+        }
+    }
+
+    /**
+     * Find the box with the least room that can still fit an item, among boxes holding no mail for a floor below
+     * the given floor. Empty boxes suit every floor. Ties go to the box with the lowest floor.
+     * @param size the size of the item
+     * @param lowestFloor the lowest floor the box may hold mail for
+     * @return the box, or null if no box fits
+     */
+    public Entry smallestFit(int size, int lowestFloor) {
+        if (size > this.boxSize) {
+            return null;
+        }
+        int units = leftmost(1, 0, this.leaves - 1, Math.max(size, 0), lowestFloor);
+        if (units < 0) {
+            return null;
+        }
+        this.probe.lowestFloor = lowestFloor;
+        return this.byFloor[units].ceiling(this.probe);
+    }
+
+    /**
+     * Find the box with the least room left. Ties go to the box in the lowest slot, or the oldest box if storage
+     * is not slot keyed.
+     * @return the box, or null if storage holds no boxes
+     */
+    public Entry fullest() {
+        int units = leftmost(1, 0, this.leaves - 1, 0, NONE + 1);
+        return (units < 0) ? null : this.byOrder[units].first();
+    }
+
+    /**
+     * Retrieve the number of boxes indexed
+     * @return the number of boxes in storage
+     */
+    public int size() {
+        return this.numBoxes;
+    }
+
+    @Override
+    public void boxCreated(String identifier, int slot) {
+        long order = (slot == SlotStorage.NO_SLOT) ? this.created++ : slot;
+        Entry entry = new Entry(identifier, slot, order, this.boxSize);
+        if (slot == SlotStorage.NO_SLOT) {
+            this.named.put(identifier, entry);
+        } else {
+            if (slot >= this.slots.length) {
+                this.slots = Arrays.copyOf(this.slots, Math.max(slot + 1, this.slots.length * 2));
+            }
+            this.slots[slot] = entry;
+        }
+        this.numBoxes += 1;
+        insert(entry);
+    }
+
+    @Override
+    public void itemAdded(String identifier, int slot, MailItem item) {
+        Entry entry = lookup(identifier, slot);
+        if (entry == null) {
+            return;
+        }
+        remove(entry);
+        entry.remainingUnits -= item.size;
+        entry.lowestFloor = Math.min(entry.lowestFloor, item.floor);
+        insert(entry);
+    }
+
+    @Override
+    public void itemRemoved(String identifier, int slot, MailItem item) {
+        Entry entry = lookup(identifier, slot);
+        if (entry == null) {
+            return;
+        }
+        remove(entry);
+        entry.remainingUnits += item.size;
+        if (item.floor <= entry.lowestFloor) {
+            try {
+                entry.lowestFloor = this.boxes.find(identifier, slot).lowestFloor();
+            } catch (BoxEmptyException e) {
+                entry.lowestFloor = Integer.MAX_VALUE;
+            }
+        }
+        insert(entry);
+    }
+
+    @Override
+    public void boxDelivered(String identifier, int slot) {
+        Entry entry = lookup(identifier, slot);
+        if (entry == null) {
+            return;
+        }
+        if (slot == SlotStorage.NO_SLOT) {
+            this.named.remove(identifier);
+        } else {
+            this.slots[slot] = null;
+        }
+        this.numBoxes -= 1;
+        remove(entry);
+    }
+
+    /**
+     * Find the indexed box stored under an identifier or slot
+     * @param identifier the identifier of the box
+     * @param slot the slot of the box, or SlotStorage.NO_SLOT if storage is not slot keyed
+     * @return the box, or null if it is not indexed
+     */
+    private Entry lookup(String identifier, int slot) {
+        if (slot == SlotStorage.NO_SLOT) {
+            return this.named.get(identifier);
+        }
+        return (slot < this.slots.length) ? this.slots[slot] : null;
+    }
+
+    private void insert(Entry entry) {
+        this.byFloor[entry.remainingUnits].add(entry);
+        this.byOrder[entry.remainingUnits].add(entry);
+        refresh(entry.remainingUnits);
+    }
+
+    private void remove(Entry entry) {
+        this.byFloor[entry.remainingUnits].remove(entry);
+        this.byOrder[entry.remainingUnits].remove(entry);
+        refresh(entry.remainingUnits);
+    }
+
+    /**
+     * Recalculate the tree above a bucket after its boxes change
+     * @param units the remaining units of the bucket
+     */
+    private void refresh(int units) {
+        TreeSet<Entry> bucket = this.byFloor[units];
+        int node = this.leaves + units;
+        this.tree[node] = bucket.isEmpty() ? NONE : bucket.last().lowestFloor;
+        for (node /= 2; node > 0; node /= 2) {
+            this.tree[node] = Math.max(this.tree[2 * node], this.tree[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Find the first bucket at or after a number of units holding a box whose lowest floor is high enough
+     * @param node the node being searched
+     * @param low the first bucket the node covers
+     * @param high the last bucket the node covers
+     * @param from the fewest remaining units wanted
+     * @param lowestFloor the lowest floor a box may hold mail for
+     * @return the remaining units of the bucket, or -1 if there is none
+     */
+    private int leftmost(int node, int low, int high, int from, int lowestFloor) {
+        if (high < from || this.tree[node] < lowestFloor) {
+            return -1;
+        }
+        if (low == high) {
+            return low;
+        }
+        int mid = (low + high) >>> 1;
+        int found = leftmost(2 * node, low, mid, from, lowestFloor);
+        return (found >= 0) ? found : leftmost(2 * node + 1, mid + 1, high, from, lowestFloor);
+    }
+
+    /** Finds a box in the storage unit being indexed */
+    public interface Boxes {
+        /**
+         * Find a stored box
+         * @param identifier the identifier of the box
+         * @param slot the slot of the box, or SlotStorage.NO_SLOT if storage is not slot keyed
+         * @return the box
+         */
+        StorageBox find(String identifier, int slot);
+    }
+
+    /**
+     * A box in the index. The identifier and slot are those the box is stored under, while the remaining units
+     * and lowest floor change as mail is added and removed.
+     */
+    public static final class Entry {
+        /** The identifier of the box in storage */
+        public final String identifier;
+        /** The slot of the box, or SlotStorage.NO_SLOT if storage is not slot keyed */
+        public final int slot;
+        /** The slot of the box, or the order it was created in if storage is not slot keyed */
+        private final long order;
+        private int remainingUnits;
+        private int lowestFloor;
+
+        private Entry(String identifier, int slot, long order, int remainingUnits) {
+            this.identifier = identifier;
+            this.slot = slot;
+            this.order = order;
+            this.remainingUnits = remainingUnits;
+            this.lowestFloor = Integer.MAX_VALUE;
+        }
+
+        /**
+         * Retrieve the units of mail the box can still fit
+         * @return the remaining units
+         */
+        public int remainingUnits() {
+            return this.remainingUnits;
+        }
+
+        /**
+         * Retrieve the lowest floor the box holds mail for
+         * @return the lowest floor, or Integer.MAX_VALUE if the box is empty
+         */
+        public int lowestFloor() {
+            return this.lowestFloor;
+        }
+    }
+}
@@ -4,15 +4,20 @@
  */
 package com.unimelb.swen30006.mailroom;
 
-import com.unimelb.swen30006.mailroom.exceptions.NoBoxReadyException;
+import com.unimelb.swen30006.mailroom.exceptions.BoxEmptyException;
 import com.unimelb.swen30006.mailroom.exceptions.SourceExhaustedException;
 import com.unimelb.swen30006.mailroom.exceptions.UnknownIdentifierException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * A Simple Delivery bot, that picks a box using a Selection Strategy and then delivers that box to all floors.
- * It will report back its statistics for time taken to deliver boxes after all deliveries are made.
+ * A bot may be allowed to carry several boxes, in which case it takes further ready boxes whose floors overlap
+ * those it already holds, and delivers them all on one trip as if they were a single box.
+ * Each delivery is fed into the bot's statistics aggregator as it completes, and can optionally also be recorded
+ * individually for detailed reports.
  */
 public class DeliveryBot implements Stepable {
     /** The constant time taken to travel a floor in the elevator */
@@ -20,7 +25,9 @@ public class DeliveryBot implements Stepable {
     /** The constant time taken to delivery all packages to a given floor */
     private static final int DELIVERY_TIME = 1;
 
-    /** The deliveries that have been made so far */
+    /** The aggregate statistics of the deliveries made so far */
+    private final StatisticsAggregator statistics;
+    /** Every delivery made so far, or null if deliveries are only aggregated */
     private ArrayList<DeliveryStatistic> stats;
     /** The floor that we are on currently */
     private int currentFloor;
@@ -29,17 +36,35 @@ public class DeliveryBot implements Stepable {
     private int numPackages;
     private int numFloors;
 
-    /** The current box we are delivering to */
+    /** The current box we are delivering to, holding the mail of every box taken for this trip */
     private StorageBox currentDelivery;
+    /** The most boxes taken from storage for a single trip */
+    private int carryingCapacity = 1;
+    /** Whether no box was ready on our last attempt, and nothing but a change in storage would make one ready */
+    private boolean waiting;
 
     /** The selection strategy to use when picking a box */
     private SelectionStrategy selectionStrategy;
+    /** The dispatcher handing out ready boxes, used in place of the selection strategy if not null */
+    private BoxDispatcher dispatcher;
     /** The delivery strategy to use when picking a parcel from a box to deliver next */
     private DeliveryStrategy deliveryStrategy;
     /** The storage room that we retrieve our mail from */
     private MailStorage storage;
+    /** The storage room when it is slot keyed, or null */
+    private SlotStorage slotStorage;
     /** The floor that the Mail Room is on */
     private int mailFloor;
+    /** Where to record how long items take to deliver, or null if latency is not tracked */
+    private LatencyTracker latency;
+    /** The clock of the simulation, or null if latency is not tracked */
+    private SimulationClock clock;
+    /** The tick the current box was taken from storage */
+    private long claimedAt;
+    /** The number of floors visited so far with the current box, one per step */
+    private int visits;
+    /** Reused to gather the summaries of boxes a load may be carried with, grown to fit storage as needed */
+    private StorageBox.Summary[] overlapping = new StorageBox.Summary[0];
 
     /**
      * Create a delivery bot with a chosen strategy for delivery and selection, along with the mail storage repo
@@ -51,14 +76,43 @@ public class DeliveryBot implements Stepable {
      */
     public DeliveryBot(SelectionStrategy selectionStrategy, DeliveryStrategy deliveryStrategy,
                        MailStorage storage, int mailRoomFloor){
-        this.stats = new ArrayList<DeliveryStatistic>();
+        this(selectionStrategy, deliveryStrategy, storage, mailRoomFloor, false);
+    }
+
+    /**
+     * Create a delivery bot, choosing whether to keep a record of every delivery as well as the aggregate statistics
+     * @param selectionStrategy the strategy for selecting storage boxes to deliver
+     * @param deliveryStrategy the strategy for selecting which floor to deliver to next
+     * @param storage the mail storage unit
+     * @param mailRoomFloor the floor the mail room is located on
+     * @param recordDeliveries whether to keep every delivery for {@link #retrieveStatistics()}
+     */
+    public DeliveryBot(SelectionStrategy selectionStrategy, DeliveryStrategy deliveryStrategy,
+                       MailStorage storage, int mailRoomFloor, boolean recordDeliveries){
+        this.statistics = new StatisticsAggregator();
+        this.stats = recordDeliveries ? new ArrayList<DeliveryStatistic>() : null;
         this.selectionStrategy = selectionStrategy;
         this.deliveryStrategy = deliveryStrategy;
         this.mailFloor = mailRoomFloor;
         this.storage = storage;
+        this.slotStorage = (storage instanceof SlotStorage) ? (SlotStorage) storage : null;
         this.currentFloor = mailRoomFloor;
     }
 
+    /**
+     * Create a delivery bot that takes ready boxes from a dispatcher rather than choosing them itself
+     * @param dispatcher the dispatcher handing out ready boxes, shared by every bot
+     * @param deliveryStrategy the strategy for selecting which floor to deliver to next
+     * @param storage the mail storage unit
+     * @param mailRoomFloor the floor the mail room is located on
+     * @param recordDeliveries whether to keep every delivery for {@link #retrieveStatistics()}
+     */
+    public DeliveryBot(BoxDispatcher dispatcher, DeliveryStrategy deliveryStrategy,
+                       MailStorage storage, int mailRoomFloor, boolean recordDeliveries){
+        this((SelectionStrategy) null, deliveryStrategy, storage, mailRoomFloor, recordDeliveries);
+        this.dispatcher = dispatcher;
+    }
+
     @Override
     public boolean canFinish() {
         return (this.currentDelivery == null) && this.storage.isEmpty();
@@ -75,22 +129,211 @@ public class DeliveryBot implements Stepable {
                 finalizeStats();
             }
         } else {
-            StorageBox.Summary[] summaries = storage.retrieveSummaries();
-            if(summaries.length >= 0) {
-                try {
-                    String id = this.selectionStrategy.selectNextDelivery(summaries);
-                    currentDelivery = this.storage.deliverBox(id);
-                    initializeStats();
-                } catch (NoBoxReadyException e) {
-//                    System.out.println(e);
-                } catch (UnknownIdentifierException e) {
-                    System.out.println(e);
-                    System.exit(0);
+            // Ready boxes are handed out by the dispatcher if there is one, so there is nothing to scan
+            currentDelivery = (this.dispatcher != null) ? this.dispatcher.claim()
+                    : selectBox(storage.retrieveSummaries());
+            if(currentDelivery != null){
+                this.waiting = false;
+                this.visits = 0;
+                initializeStats();
+                if(this.latency != null){
+                    this.claimedAt = this.clock.now();
+                    this.currentDelivery.recordDwell(this.latency, this.claimedAt);
+                }
+                if(this.carryingCapacity > 1){
+                    this.currentDelivery = loadCompanions(this.currentDelivery);
                 }
+            } else {
+                this.waiting = (this.dispatcher != null) || !this.selectionStrategy.requiresPolling();
             }
         }
     }
 
+    /**
+     * Step the bot as {@link #step()} does, but carry any delivery it starts through to the end at once rather
+     * than one floor per step. Once a box is taken from storage, delivering it touches nothing shared with the
+     * sorter or other bots, so this gives the same statistics as stepping the bot through every floor.
+     * @return the number of steps the bot would take to get through the delivery one floor at a time, counting
+     * this one, or 1 if no delivery was started
+     */
+    public int stepTrip(){
+        step();
+        return 1 + finishTrip();
+    }
+
+    /**
+     * Carry the delivery in progress, if any, through to the end at once, as {@link #stepTrip()} does. As the
+     * delivery touches nothing shared, this may run on a thread of its own while the sorter and other bots step.
+     * @return the number of steps the bot would take to finish the delivery one floor at a time
+     */
+    public int finishTrip(){
+        int steps = 0;
+        while(this.currentDelivery != null){
+            step();
+            steps++;
+        }
+        return steps;
+    }
+
+    /**
+     * Find how many floors are left to visit in the delivery in progress. Every step of a delivery visits one
+     * floor, so the delivery takes at least this many more steps.
+     * @return the number of floors the bot still holds mail for, or 0 if it is not delivering
+     */
+    public int floorsLeft(){
+        return (this.currentDelivery == null) ? 0 : this.currentDelivery.numDests();
+    }
+
+    /**
+     * Ask the selection strategy for the next box and take it out of storage
+     * @param summaries the summaries of the boxes to choose from
+     * @return the box taken, or null if no box is ready
+     */
+    private StorageBox selectBox(StorageBox.Summary[] summaries){
+        // No box being ready is the usual outcome when idle, so it is reported as a result
+        if(this.slotStorage != null){
+            int slot = this.selectionStrategy.trySelectNextSlot(summaries);
+            if(slot == SlotStorage.NO_SLOT){
+                return null;
+            }
+            StorageBox box = this.slotStorage.tryDeliverSlot(slot);
+            if(box == null){
+                selectionFailed(String.valueOf(slot));
+            }
+            return box;
+        }
+        String id = this.selectionStrategy.trySelectNextDelivery(summaries);
+        if(id == null){
+            return null;
+        }
+        StorageBox box = this.storage.tryDeliverBox(id);
+        if(box == null){
+            selectionFailed(id);
+        }
+        return box;
+    }
+
+    /**
+     * Take further boxes to carry with a box just taken from storage, up to the bot's carrying capacity. Each box
+     * taken must hold mail for floors that overlap the range of floors the bot is already going to, and must be
+     * one the dispatcher or the selection strategy would send out, choosing among the overlapping boxes only.
+     * @param first the box just taken, which must not be empty
+     * @return the first box if no other box could be taken, otherwise a box holding the mail of every box taken
+     */
+    private StorageBox loadCompanions(StorageBox first){
+        StorageBox load = null;
+        try {
+            int lowest = first.lowestFloor();
+            int highest = first.highestFloor();
+            for(int carried = 1; carried < this.carryingCapacity; carried++){
+                StorageBox companion = (this.dispatcher != null) ? this.dispatcher.claimCompanion(lowest, highest)
+                        : selectBox(overlapping(storage.retrieveSummaries(), lowest, highest));
+                if(companion == null){
+                    break;
+                }
+                if(this.latency != null){
+                    companion.recordDwell(this.latency, this.claimedAt);
+                }
+                lowest = Math.min(lowest, companion.lowestFloor());
+                highest = Math.max(highest, companion.highestFloor());
+                if(load == null){
+                    load = first.createEmpty(first.maxItems * this.carryingCapacity);
+                    moveMail(first, load);
+                }
+                moveMail(companion, load);
+            }
+        } catch (BoxEmptyException e){
+            System.out.println(e);
+            System.exit(0);
+        }
+        return (load == null) ? first : load;
+    }
+
+    /**
+     * Find the summaries of the boxes holding mail for floors that overlap a range
+     * @param summaries the summaries of every box in storage
+     * @param lowestFloor the lowest floor of the range
+     * @param highestFloor the highest floor of the range
+     * @return the summaries of the overlapping boxes, which are the summaries given if every box overlaps
+     */
+    private StorageBox.Summary[] overlapping(StorageBox.Summary[] summaries, int lowestFloor, int highestFloor){
+        if(this.overlapping.length < summaries.length){
+            this.overlapping = new StorageBox.Summary[summaries.length];
+        }
+        int count = 0;
+        for(StorageBox.Summary summary : summaries){
+            StorageBox box = (this.slotStorage != null) ? this.slotStorage.findSlot(summary.slot)
+                    : this.storage.findBox(summary.identifier);
+            if(box != null && box.overlaps(lowestFloor, highestFloor)){
+                this.overlapping[count++] = summary;
+            }
+        }
+        // Strategies are given exactly the boxes to choose from, so only a partial match is copied out
+        StorageBox.Summary[] found = (count == summaries.length) ? summaries : Arrays.copyOf(this.overlapping, count);
+        Arrays.fill(this.overlapping, 0, count, null);
+        return found;
+    }
+
+    /**
+     * Move every item from one box to another
+     * @param from the box to empty
+     * @param to the box to fill, which must have room for the mail
+     */
+    private static void moveMail(StorageBox from, StorageBox to){
+        MailItem item;
+        while((item = from.pollItem()) != null){
+            to.offerItem(item);
+        }
+    }
+
+    /**
+     * Abort when the selection strategy has chosen a box that is not in storage
+     * @param identifier the identifier the strategy gave
+     */
+    private void selectionFailed(String identifier){
+        System.out.println(new UnknownIdentifierException(identifier));
+        System.exit(0);
+    }
+
+    /**
+     * Record how long each item spends in storage and in transit, and in total from leaving the mail source
+     * @param tracker the tracker to record in
+     * @param clock the clock of the simulation
+     */
+    public void trackLatency(LatencyTracker tracker, SimulationClock clock){
+        this.latency = tracker;
+        this.clock = clock;
+    }
+
+    /**
+     * Let the bot carry several boxes on each trip, all delivered along one route
+     * @param boxes the most boxes to take from storage for a single trip
+     * @throws IllegalArgumentException if the bot could not carry even one box
+     */
+    public void setCarryingCapacity(int boxes){
+        if(boxes < 1){
+            throw new IllegalArgumentException("A bot must carry at least one box, not " + boxes);
+        }
+        this.carryingCapacity = boxes;
+    }
+
+    /**
+     * Check if the bot is currently part way through delivering a box
+     * @return true if the bot holds a box
+     */
+    public boolean isDelivering(){
+        return this.currentDelivery != null;
+    }
+
+    /**
+     * Check if the bot is idle and will remain idle until the contents of storage change. A waiting bot
+     * does not need to be stepped again until then.
+     * @return true if stepping the bot before storage changes would have no effect
+     */
+    public boolean isWaiting(){
+        return this.currentDelivery == null && this.waiting;
+    }
+
     /**
      * Initialize the statistics for a particular run
      */
@@ -107,8 +350,10 @@ public class DeliveryBot implements Stepable {
         // Travel back to the mailroom
         travelFloor(this.mailFloor);
         // Generate statistics
-        DeliveryStatistic stat = new DeliveryStatistic(this.numPackages, this.totalTime, this.numFloors);
-        this.stats.add(stat);
+        this.statistics.record(this.numPackages, this.totalTime, this.numFloors);
+        if(this.stats != null){
+            this.stats.add(new DeliveryStatistic(this.numPackages, this.totalTime, this.numFloors));
+        }
     }
 
     /**
@@ -117,6 +362,7 @@ public class DeliveryBot implements Stepable {
     private void stepDelivery() {
         try {
             int destinationFloor = deliveryStrategy.chooseNextFloor(this.currentFloor, this.currentDelivery);
+            this.visits += 1;
             travelFloor(destinationFloor);
             deliverToFloor(destinationFloor, this.currentDelivery);
         } catch (SourceExhaustedException e){
@@ -131,29 +377,20 @@ public class DeliveryBot implements Stepable {
      * @param box the box we are delivering from
      */
     private void deliverToFloor(int floor, StorageBox box){
-        // Collect all the mail
-        ArrayList<MailItem> remaining = new ArrayList<MailItem>();
-        ArrayList<MailItem> deliver = new ArrayList<MailItem>();
-        try {
-            while(!box.isEmpty()){
-                MailItem item = box.popItem();
-                if(item.floor==floor){
-                    deliver.add(item);
-                } else {
-                    remaining.add(item);
-                }
-             }
-            // Count the number that we are delivering on this floor
-            this.numPackages += deliver.size();
-            // Add all the mail that isn't for this floor back into the box
-            for(MailItem item : remaining){
-                box.addItem(item);
+        // Take out all the mail for this floor, leaving the rest of the box untouched
+        List<MailItem> deliver = box.removeItemsForFloor(floor);
+        // Count the number that we are delivering on this floor
+        this.numPackages += deliver.size();
+        if(this.latency != null){
+            // Each floor is visited a step after the last, however far ahead of the clock the trip is stepped
+            long now = this.claimedAt + this.visits;
+            for(MailItem item : deliver){
+                this.latency.record(LatencyTracker.Stage.Transit, item, now - this.claimedAt);
+                this.latency.record(LatencyTracker.Stage.EndToEnd, item, now - item.arrivalTime);
             }
-            // Add time to the mailroom
-            this.totalTime += DELIVERY_TIME;
-        } catch (Exception e) {
-            System.out.println(e);
         }
+        // Add time to the mailroom
+        this.totalTime += DELIVERY_TIME;
     }
 
     /**
@@ -170,11 +407,21 @@ public class DeliveryBot implements Stepable {
     }
 
     /**
-     * Package the statistics list into an array for computation of delivery performance by
-     * other systems
-     * @return A (possibly empty) array of all statistics for delivery
+     * Retrieve the aggregate statistics of every delivery made so far, which keep updating as the bot delivers
+     * @return the bot's statistics aggregator
+     */
+    public StatisticsAggregator retrieveAggregate(){
+        return this.statistics;
+    }
+
+    /**
+     * Package the statistics list into an array for detailed reporting of each delivery
+     * @return A (possibly empty) array of all statistics for delivery, empty unless the bot records deliveries
      */
     public DeliveryStatistic[] retrieveStatistics(){
+        if(this.stats == null){
+            return new DeliveryStatistic[0];
+        }
         return stats.toArray(new DeliveryStatistic[0]);
     }
 
@@ -0,0 +1,234 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+import java.util.PriorityQueue;
+
+/**
+ * An event driven alternative to stepping the sorter and every delivery bot on every tick. Each unit schedules
+ * its next step on a time ordered queue. A bot that takes a box delivers the whole box at once, and its next
+ * event is scheduled for the tick its last floor visit finishes, a tick per floor visited, so a delivering bot
+ * costs one event per trip rather than one per floor. A bot with nothing to do is parked until storage reports a
+ * change, and a sorter that is blocked on full storage is likewise parked until storage reports a box delivered.
+ * Within a tick, units step in the same order as the fixed tick loop (sorter first, then bots by index), so the
+ * delivery statistics produced are identical.
+ */
+public class EventScheduler implements StorageListener {
+
+    /** The sorter feeding storage */
+    private final MailSorter sorter;
+    /** The bots delivering from storage */
+    private final DeliveryBot[] bots;
+    /** The storage shared by the sorter and bots, listened to while running */
+    private final MailStorage storage;
+    /** Pending steps, ordered by tick and then by position within the tick */
+    private final PriorityQueue<Event> queue;
+    /** Whether each bot is parked waiting for storage to change */
+    private final boolean[] parked;
+    /** The last tick each bot is still delivering in, when stepped a floor at a time */
+    private final long[] busyUntil;
+    private int numParked;
+    /** Whether the sorter is parked waiting for a box to be delivered */
+    private boolean sorterParked;
+    /** The tick and position within it of the unit being stepped, which any change to storage is made by */
+    private long tick;
+    private int order;
+    /** The clock of the simulation, advanced as each tick begins */
+    private final SimulationClock clock;
+
+    /**
+     * Create a scheduler over a sorter and its delivery bots
+     * @param sorter the mail sorter, stepped first in every tick
+     * @param bots the delivery bots, stepped in index order after the sorter
+     * @param storage the storage the sorter and bots share
+     */
+    public EventScheduler(MailSorter sorter, DeliveryBot[] bots, MailStorage storage) {
+        this(sorter, bots, storage, new SimulationClock());
+    }
+
+    /**
+     * Create a scheduler over a sorter and its delivery bots that keeps the simulation clock in step
+     * @param sorter the mail sorter, stepped first in every tick
+     * @param bots the delivery bots, stepped in index order after the sorter
+     * @param storage the storage the sorter and bots share
+     * @param clock the clock to advance to each tick as it begins
+     */
+    public EventScheduler(MailSorter sorter, DeliveryBot[] bots, MailStorage storage, SimulationClock clock) {
+        this.clock = clock;
+        this.sorter = sorter;
+        this.bots = bots;
+        this.storage = storage;
+        this.queue = new PriorityQueue<Event>();
+        this.parked = new boolean[bots.length];
+        this.busyUntil = new long[bots.length];
+    }
+
+    /**
+     * Run until the sorter and every bot can finish
+     * @return the number of ticks simulated
+     */
+    public long run() {
+        this.storage.addListener(this);
+        try {
+            return runEvents();
+        } finally {
+            this.storage.removeListener(this);
+        }
+    }
+
+    /**
+     * Step each unit as its events come up, until every unit can finish
+     * @return the number of ticks simulated
+     */
+    private long runEvents() {
+        // Every unit takes part in the first tick
+        this.queue.add(new Event(0, 0));
+        for (int b = 0; b < this.bots.length; b++) {
+            this.queue.add(new Event(0, b + 1));
+        }
+
+        this.tick = 0;
+        while (!this.queue.isEmpty()) {
+            Event event = this.queue.poll();
+            // Ticks with no events leave the system untouched but for bots finishing their trips, so finishing
+            // only needs checking between events
+            if (event.tick != this.tick) {
+                long finished = finishedIn();
+                if (finished >= 0 && finished < event.tick) {
+                    return finished + 1;
+                }
+                this.tick = event.tick;
+                this.clock.advanceTo(this.tick);
+            }
+            this.order = event.order;
+            if (event.order == 0) {
+                stepSorter();
+            } else {
+                stepBot(event.order - 1);
+            }
+        }
+
+        long finished = finishedIn();
+        if (finished < 0) {
+            throw new IllegalStateException("Simulation stalled at tick " + this.tick + " with nothing scheduled");
+        }
+        return finished + 1;
+    }
+
+    /**
+     * Step the sorter, then either reschedule it or park it until a box is delivered
+     */
+    private void stepSorter() {
+        this.sorter.step();
+        // A finished sorter never does anything again
+        if (this.sorter.canFinish()) {
+            return;
+        }
+        if (this.sorter.isBlocked()) {
+            this.sorterParked = true;
+        } else {
+            this.queue.add(new Event(this.tick + 1, 0));
+        }
+    }
+
+    /**
+     * Step a bot through any trip it starts, then either reschedule it for the tick after the trip ends or park it
+     * until storage changes
+     * @param index the index of the bot
+     */
+    private void stepBot(int index) {
+        DeliveryBot bot = this.bots[index];
+        int steps = bot.stepTrip();
+        if (bot.isWaiting()) {
+            this.parked[index] = true;
+            this.numParked += 1;
+        } else {
+            this.busyUntil[index] = this.tick + steps - 1;
+            this.queue.add(new Event(this.tick + steps, index + 1));
+        }
+    }
+
+    @Override
+    public void boxCreated(String identifier, int slot) {
+        storageChanged();
+    }
+
+    @Override
+    public void itemAdded(String identifier, int slot, MailItem item) {
+        storageChanged();
+    }
+
+    @Override
+    public void itemRemoved(String identifier, int slot, MailItem item) {
+        storageChanged();
+    }
+
+    @Override
+    public void boxDelivered(String identifier, int slot) {
+        // Bots take boxes after the sorter has stepped, so it tries again next tick
+        if (this.sorterParked) {
+            this.sorterParked = false;
+            this.queue.add(new Event(this.tick + 1, 0));
+        }
+        storageChanged();
+    }
+
+    /**
+     * Wake every parked bot after a change to storage. Bots that come after the unit making the change within
+     * this tick step in this tick, exactly as they would in the fixed tick loop, the rest step in the next.
+     */
+    private void storageChanged() {
+        if (this.numParked == 0) {
+            return;
+        }
+        for (int b = 0; b < this.parked.length; b++) {
+            if (this.parked[b]) {
+                this.parked[b] = false;
+                this.queue.add(new Event(b + 1 > this.order ? this.tick : this.tick + 1, b + 1));
+            }
+        }
+        this.numParked = 0;
+    }
+
+    /**
+     * Find the tick the simulation finishes in, given that nothing changes after the current tick but bots
+     * finishing their trips
+     * @return the first tick, from the current one on, at the end of which the sorter and every bot are able to
+     * finish, or -1 if that will not happen without further events
+     */
+    private long finishedIn() {
+        if (!this.sorter.canFinish()) {
+            return -1;
+        }
+        long finished = this.tick;
+        for (int b = 0; b < this.bots.length; b++) {
+            if (!this.bots[b].canFinish()) {
+                return -1;
+            }
+            finished = Math.max(finished, this.busyUntil[b]);
+        }
+        return finished;
+    }
+
+    /** A scheduled step of a single unit */
+    private static final class Event implements Comparable<Event> {
+        /** The tick the step happens in */
+        private final long tick;
+        /** The position within the tick, zero for the sorter and one plus the index for bots */
+        private final int order;
+
+        private Event(long tick, int order) {
+            this.tick = tick;
+            this.order = order;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            if (this.tick != other.tick) {
+                return this.tick < other.tick ? -1 : 1;
+            }
+            return Integer.compare(this.order, other.order);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded first in, first out queue that any number of threads may offer to and poll from at once without
+ * locking. Elements live in a ring of cells, each with a sequence number saying whether it is ready to be filled
+ * or emptied on the current lap of the ring, so a producer or consumer claims a cell with a single compare and
+ * set on the tail or head and then fills or empties it without contention. Offering and polling take constant
+ * time, and never block: a full queue refuses the element and an empty queue answers null.
+ *
+ * @param <E> the type of element held
+ */
+public class HandoffQueue<E> {
+
+    /** The elements, in cells indexed by position modulo the length of the ring */
+    private final AtomicReferenceArray<E> cells;
+    /** The sequence of each cell: its position when ready to fill, one past its position once filled */
+    private final AtomicLongArray sequences;
+    /** The length of the ring less one, as the length is a power of two */
+    private final int mask;
+    /** The position of the next cell to fill */
+    private final AtomicLong tail = new AtomicLong();
+    /** The position of the next cell to empty */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * Create an empty queue holding at least the given number of elements
+     * @param capacity the fewest elements the queue must hold, rounded up to a power of two
+     */
+    public HandoffQueue(int capacity) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Queue capacity must be between 1 and 2^30, not " + capacity);
+        }
+        int length = Integer.highestOneBit(capacity);
+        if (length < capacity) {
+            length *= 2;
+        }
+        this.cells = new AtomicReferenceArray<E>(length);
+        this.sequences = new AtomicLongArray(length);
+        for (int i = 0; i < length; i++) {
+            this.sequences.set(i, i);
+        }
+        this.mask = length - 1;
+    }
+
+    /**
+     * Add an element to the tail of the queue if there is room
+     * @param element the element to add, which must not be null
+     * @return true if the element was added, false if the queue is full
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        long position = this.tail.get();
+        while (true) {
+            int cell = (int) position & this.mask;
+            long difference = this.sequences.get(cell) - position;
+            if (difference == 0) {
+                // The cell is empty on this lap, so claim it and fill it
+                if (this.tail.compareAndSet(position, position + 1)) {
+                    this.cells.lazySet(cell, element);
+                    this.sequences.lazySet(cell, position + 1);
+                    return true;
+                }
+                position = this.tail.get();
+            } else if (difference < 0) {
+                // The cell still holds an element from the last lap
+                return false;
+            } else {
+                // Another producer claimed the cell first
+                position = this.tail.get();
+            }
+        }
+    }
+
+    /**
+     * Remove the element at the head of the queue
+     * @return the element, or null if the queue is empty
+     */
+    public E poll() {
+        long position = this.head.get();
+        while (true) {
+            int cell = (int) position & this.mask;
+            long difference = this.sequences.get(cell) - (position + 1);
+            if (difference == 0) {
+                // The cell is filled on this lap, so claim it and empty it for the next lap
+                if (this.head.compareAndSet(position, position + 1)) {
+                    E element = this.cells.get(cell);
+                    this.cells.lazySet(cell, null);
+                    this.sequences.lazySet(cell, position + this.mask + 1);
+                    return element;
+                }
+                position = this.head.get();
+            } else if (difference < 0) {
+                // The cell has not been filled on this lap
+                return null;
+            } else {
+                // Another consumer emptied the cell first
+                position = this.head.get();
+            }
+        }
+    }
+
+    /**
+     * Retrieve the number of elements in the queue, which may already be out of date if other threads are using it
+     * @return the number of elements
+     */
+    public int size() {
+        while (true) {
+            long head = this.head.get();
+            long tail = this.tail.get();
+            if (this.head.get() == head) {
+                return (int) Math.max(0, Math.min(tail - head, this.mask + 1));
+            }
+        }
+    }
+
+    /**
+     * Check if the queue is empty
+     * @return true if the queue holds no elements
+     */
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    /**
+     * Retrieve the most elements the queue can hold
+     * @return the capacity of the queue
+     */
+    public int capacity() {
+        return this.mask + 1;
+    }
+}
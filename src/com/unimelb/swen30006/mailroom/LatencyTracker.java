@@ -0,0 +1,64 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+/**
+ * Records how long individual mail items spend in each stage of their journey, in ticks, broken down by priority.
+ * Statistics for every stage and priority are allocated up front, so recording an item allocates nothing. Each
+ * unit of a simulation keeps its own tracker, and trackers are merged once the run is finished.
+ */
+public class LatencyTracker {
+
+    /** The stages of an item's journey from the mail source to its floor */
+    public enum Stage { Queueing, Dwell, Transit, EndToEnd };
+
+    /** The statistics of each stage, indexed by stage then priority */
+    private final StreamingStatistic[][] statistics;
+
+    /**
+     * Create a tracker with nothing recorded
+     */
+    public LatencyTracker() {
+        Stage[] stages = Stage.values();
+        MailItem.MailPriority[] priorities = MailItem.MailPriority.values();
+        this.statistics = new StreamingStatistic[stages.length][priorities.length];
+        for (int s = 0; s < stages.length; s++) {
+            for (int p = 0; p < priorities.length; p++) {
+                this.statistics[s][p] = new StreamingStatistic();
+            }
+        }
+    }
+
+    /**
+     * Record the time an item spent in one stage
+     * @param stage the stage the item has completed
+     * @param item the item
+     * @param ticks the number of ticks it spent in that stage
+     */
+    public void record(Stage stage, MailItem item, long ticks) {
+        this.statistics[stage.ordinal()][item.priority.ordinal()].record((int) Math.min(Integer.MAX_VALUE, ticks));
+    }
+
+    /**
+     * Add everything recorded by another tracker to this one
+     * @param other the tracker to merge, which is left unchanged
+     */
+    public void merge(LatencyTracker other) {
+        for (int s = 0; s < this.statistics.length; s++) {
+            for (int p = 0; p < this.statistics[s].length; p++) {
+                this.statistics[s][p].merge(other.statistics[s][p]);
+            }
+        }
+    }
+
+    /**
+     * Retrieve the statistics of one stage for items of one priority
+     * @param stage the stage
+     * @param priority the priority
+     * @return the time items of that priority spent in that stage, in ticks
+     */
+    public StreamingStatistic statistic(Stage stage, MailItem.MailPriority priority) {
+        return this.statistics[stage.ordinal()][priority.ordinal()];
+    }
+}
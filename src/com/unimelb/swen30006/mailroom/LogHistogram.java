@@ -0,0 +1,112 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+/**
+ * A fixed size histogram of non-negative integers with logarithmically sized buckets. Small values are counted
+ * exactly, and each larger power of two is split into {@link #SUB_BUCKETS} equal buckets, so any percentile is
+ * reported to within about three percent of the true value. Memory does not grow with the number of values
+ * recorded, and two histograms are merged by adding their buckets.
+ */
+public class LogHistogram {
+
+    /** The number of bits of each value that are kept exactly */
+    private static final int SUB_BITS = 5;
+    /** The number of buckets each power of two is split into */
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    /** Enough buckets to cover every non-negative int */
+    private static final int NUM_BUCKETS = (Integer.SIZE - SUB_BITS) * SUB_BUCKETS;
+
+    /** The number of values recorded in each bucket */
+    private final long[] counts;
+    /** The total number of values recorded */
+    private long count;
+
+    /**
+     * Create an empty histogram
+     */
+    public LogHistogram() {
+        this.counts = new long[NUM_BUCKETS];
+    }
+
+    /**
+     * Record a value
+     * @param value the value, which must not be negative
+     */
+    public void record(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Cannot record negative value " + value);
+        }
+        this.counts[bucketOf(value)]++;
+        this.count++;
+    }
+
+    /**
+     * Add every value recorded by another histogram to this one
+     * @param other the histogram to merge, which is left unchanged
+     */
+    public void merge(LogHistogram other) {
+        for (int b = 0; b < NUM_BUCKETS; b++) {
+            this.counts[b] += other.counts[b];
+        }
+        this.count += other.count;
+    }
+
+    /**
+     * Retrieve the number of values recorded
+     * @return the number of values
+     */
+    public long count() {
+        return this.count;
+    }
+
+    /**
+     * Estimate a percentile of the recorded values
+     * @param percentile the percentile, between 0 and 100
+     * @return the largest value in the bucket holding that percentile, or 0 if nothing has been recorded
+     */
+    public int percentile(double percentile) {
+        if (this.count == 0) {
+            return 0;
+        }
+        // The rank of the value sought, counting from one
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * this.count));
+        long seen = 0;
+        for (int b = 0; b < NUM_BUCKETS; b++) {
+            seen += this.counts[b];
+            if (seen >= rank) {
+                return highestValueIn(b);
+            }
+        }
+        return highestValueIn(NUM_BUCKETS - 1);
+    }
+
+    /**
+     * Find the bucket a value is counted in
+     * @param value a non-negative value
+     * @return the index of its bucket
+     */
+    private static int bucketOf(int value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return value;
+        }
+        // Keep the top SUB_BITS + 1 bits, whose leading bit identifies the power of two
+        int shift = (Integer.SIZE - 1 - Integer.numberOfLeadingZeros(value)) - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * Find the largest value that is counted in a bucket
+     * @param bucket the index of the bucket
+     * @return the largest value it holds
+     */
+    private static int highestValueIn(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return (int) Math.min(Integer.MAX_VALUE, lowest + (1L << shift) - 1);
+    }
+}
@@ -25,6 +25,8 @@ public class MailItem {
     public final String adressee;
     /** The size of the package */
     public final int size;
+    /** The tick the item was taken from its mail source */
+    public final long arrivalTime;
 
     /** Constructor for an immutable MailItem
      * @param type the type of this mail item
@@ -34,11 +36,24 @@ public class MailItem {
      * @param size the size of this package (in mail units)
      */
     public MailItem(MailType type, MailPriority priority, int floor, String adressee, int size){
+        this(type, priority, floor, adressee, size, 0);
+    }
+
+    /** Constructor for an immutable MailItem that arrived at a known tick
+     * @param type the type of this mail item
+     * @param priority the priority of this mail item
+     * @param floor the floor this item is being sent to
+     * @param adressee the name of the person that the mail is adressed to
+     * @param size the size of this package (in mail units)
+     * @param arrivalTime the tick this item was taken from its mail source
+     */
+    public MailItem(MailType type, MailPriority priority, int floor, String adressee, int size, long arrivalTime){
         this.packageType = type;
         this.priority = priority;
         this.floor = floor;
         this.adressee = adressee;
         this.size = size;
+        this.arrivalTime = arrivalTime;
     }
 
     @Override
@@ -49,6 +64,7 @@ public class MailItem {
                 ", floor=" + floor +
                 ", adressee='" + adressee + '\'' +
                 ", size=" + size +
+                ", arrivalTime=" + arrivalTime +
                 '}';
     }
 }
@@ -4,27 +4,41 @@
  */
 package com.unimelb.swen30006.mailroom;
 
-import com.unimelb.swen30006.mailroom.exceptions.MailOverflowException;
-import com.unimelb.swen30006.mailroom.exceptions.SourceExhaustedException;
 import com.unimelb.swen30006.mailroom.exceptions.UnknownIdentifierException;
 
+import java.util.Arrays;
+
 /**
  * A MailSorting computer that takes a MailSource, and a Sorting Strategy and will
  * use that strategy to continuously sort mail into boxes until their is none left
  * in the MailSource. Works with delivery bots to clear storage and deliver mail
  */
-public class MailSorter implements Stepable {
+public class MailSorter implements Stepable, SortingProgress {
 
     /** The mail storage system in use */
     private final MailStorage storage;
+    /** The mail storage system when it is slot keyed, or null */
+    private final SlotStorage slotStorage;
     /** The mail source we are sorting from */
     private final MailSource source;
     /** The sorting strategy we apply */
     private final SortingStrategy strategy;
     /** Flag for whether we have finished or not */
     private boolean hasFinished = false;
-    /** The next mail item to deliver **/
-    private MailItem nextItem;
+    /** The items taken from the source but not yet stored, in order, at the front of the array */
+    private final MailItem[] pending;
+    private int numPending = 0;
+    /** The boxes assigned to the pending items, by identifier or by slot */
+    private final String[] identifiers;
+    private final int[] slots;
+    /** The number of mail items placed into storage so far */
+    private int numSorted = 0;
+    /** Whether the last step left the sorter unable to do anything until a box is delivered */
+    private boolean blocked = false;
+    /** Where to record how long items waited to be stored, or null if latency is not tracked */
+    private LatencyTracker latency;
+    /** The clock of the simulation, or null if latency is not tracked */
+    private SimulationClock clock;
 
     /**
      * Instantiate a MailSorter with the given parameters. Does not begin sort from source
@@ -34,46 +48,161 @@ public class MailSorter implements Stepable {
      * @param strategy the strategy this source should use to decide on sorting decisions
      */
     public MailSorter(MailSource source, MailStorage storage, SortingStrategy strategy) {
+        this(source, storage, strategy, 1);
+    }
+
+    /**
+     * Instantiate a MailSorter that can sort several items in each step. Does not begin sort from source
+     *
+     * @param source     the mail source this sorter should retrieve mail from
+     * @param storage    the storage source this sorter should use to store mail in
+     * @param strategy   the strategy this source should use to decide on sorting decisions
+     * @param throughput the largest number of items to sort in a single step
+     */
+    public MailSorter(MailSource source, MailStorage storage, SortingStrategy strategy, int throughput) {
+        if (throughput < 1) {
+            throw new IllegalArgumentException("A sorter must sort at least one item per step, not " + throughput);
+        }
         this.source = source;
         this.storage = storage;
+        this.slotStorage = (storage instanceof SlotStorage) ? (SlotStorage) storage : null;
         this.strategy = strategy;
+        this.pending = new MailItem[throughput];
+        this.identifiers = new String[throughput];
+        this.slots = new int[throughput];
     }
 
     @Override
     public void step() {
-        if (source.hasNextMail()) {
-            // Continue while we have mail
-
-            try {
-                if(this.nextItem==null){
-                    this.nextItem = source.nextItem();
-                }
-                // Retrieve identifier
-                String identifier = strategy.assignStorage(this.nextItem, this.storage);
-                // Assign Storage
-                StorageBox box = this.storage.retrieveBox(identifier);
-                box.addItem(this.nextItem);
-                // Set this to null if no exceptions thrown
-                this.nextItem = null;
-            } catch (MailOverflowException e) {
-                // Strategy has decided storage has no room for mail item, wait for deliver.
-            	System.out.println(e);
-            } catch (UnknownIdentifierException e) {
-                // Strategy has not correctly identified box
-                System.out.println(e);
-                System.out.println("FATAL: Sort Strategy failed. Abort");
-                System.exit(0);
-            } catch (SourceExhaustedException e) {
-                // Print the exception out to warn and return
-                System.out.println(e);
+        // Top up the items waiting to be sorted, in the order they left the source
+        if (this.numPending < this.pending.length && source.hasNextMail()) {
+            this.numPending += source.nextBatch(this.pending.length - this.numPending, this.pending, this.numPending);
+        }
+        if (this.numPending == 0) {
+            // A source may hold mail that has not arrived yet
+            if (this.storage.isEmpty() && !source.hasNextMail()) {
+                this.hasFinished = true;
+            }
+            // With nothing left to sort, only a delivery can empty storage
+            this.blocked = !this.hasFinished && !source.hasNextMail();
+            return;
+        }
+
+        // Store items in order until one has no room, waiting for delivery costs nothing as it is reported as a result
+        int stored = 0;
+        while (stored < this.numPending) {
+            int assigned = assignBoxes(stored, this.numPending - stored);
+            int end = stored + assigned;
+            while (stored < end && store(stored)) {
+                stored++;
+            }
+            // Stop at the first item without room, whether the strategy reported it or chose a box that was full
+            if (assigned == 0 || stored < end) {
+                break;
             }
-        } else if(this.storage.isEmpty()){
-            this.hasFinished = true;
         }
+
+        // Keep any items that could not be stored at the front, to be tried first next step
+        if (stored > 0) {
+            System.arraycopy(this.pending, stored, this.pending, 0, this.numPending - stored);
+            Arrays.fill(this.pending, this.numPending - stored, this.numPending, null);
+            this.numPending -= stored;
+        }
+        // Nothing more can be read and nothing fitted, so trying again is pointless until room is made
+        this.blocked = stored == 0 && (this.numPending == this.pending.length || !source.hasNextMail())
+                && !strategy.requiresPolling();
+    }
+
+    /**
+     * Ask the strategy for boxes for a run of pending items, from a single look at storage
+     * @param offset the index of the first pending item
+     * @param length the number of pending items
+     * @return the number of leading items assigned a box
+     */
+    private int assignBoxes(int offset, int length) {
+        if (this.slotStorage != null) {
+            return strategy.assignSlotBatch(this.pending, offset, length, this.slotStorage, this.slots);
+        }
+        return strategy.assignBatch(this.pending, offset, length, this.storage, this.identifiers);
+    }
+
+    /**
+     * Place a pending item in the box it was assigned
+     * @param index the index of the pending item
+     * @return true if the item was stored, false if the box did not have room
+     */
+    private boolean store(int index) {
+        MailItem item = this.pending[index];
+        StorageBox box;
+        if (this.slotStorage != null) {
+            box = this.slotStorage.findSlot(this.slots[index]);
+            if (box == null) {
+                sortFailed(String.valueOf(this.slots[index]));
+            }
+        } else {
+            box = this.storage.findBox(this.identifiers[index]);
+            if (box == null) {
+                sortFailed(this.identifiers[index]);
+            }
+        }
+        long now = (this.clock == null) ? item.arrivalTime : this.clock.now();
+        if (!box.offerItem(item, now)) {
+            return false;
+        }
+        if (this.latency != null) {
+            this.latency.record(LatencyTracker.Stage.Queueing, item, now - item.arrivalTime);
+        }
+        this.numSorted += 1;
+        return true;
+    }
+
+    /**
+     * Abort when the strategy has not correctly identified a box
+     * @param identifier the identifier the strategy gave
+     */
+    private void sortFailed(String identifier) {
+        System.out.println(new UnknownIdentifierException(identifier));
+        System.out.println("FATAL: Sort Strategy failed. Abort");
+        System.exit(0);
     }
 
     @Override
     public boolean canFinish() {
         return this.hasFinished;
     }
+
+    /**
+     * Record how long each item waits between leaving the mail source and being stored
+     * @param tracker the tracker to record in
+     * @param clock the clock of the simulation
+     */
+    public void trackLatency(LatencyTracker tracker, SimulationClock clock) {
+        this.latency = tracker;
+        this.clock = clock;
+    }
+
+    /**
+     * Check whether stepping the sorter would do nothing until a box is delivered from storage. True when the
+     * last step found nothing left to sort while storage still held boxes, or stored nothing when no more mail
+     * could be read and the strategy does not need to be asked again while storage is unchanged. Schedulers may
+     * skip a blocked sorter until a box is delivered.
+     * @return true if the sorter is waiting for a delivery
+     */
+    public boolean isBlocked() {
+        return this.blocked;
+    }
+
+    @Override
+    public boolean isDrained() {
+        return this.numPending == 0 && !source.hasNextMail();
+    }
+
+    /**
+     * Retrieve the number of items this sorter has placed into storage. The count changes exactly when
+     * a step changes the contents of storage.
+     * @return the number of items sorted so far
+     */
+    public int numSorted() {
+        return this.numSorted;
+    }
 }
\ No newline at end of file
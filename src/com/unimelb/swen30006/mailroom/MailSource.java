@@ -12,7 +12,7 @@ import com.unimelb.swen30006.mailroom.exceptions.SourceExhaustedException;
  */
 public interface MailSource {
     /**
-     * Check if the given mail source has any remaining mail
+     * Check if the given mail source has any remaining mail, including mail that has not yet arrived
      * @return true if mail remains at the source
      */
     boolean hasNextMail();
@@ -23,4 +23,25 @@ public interface MailSource {
      * @throws SourceExhaustedException if no mail left in the incoming source
      */
     MailItem nextItem() throws SourceExhaustedException;
+
+    /**
+     * Retrieve up to a number of the next MailItems in the incoming source at once
+     * @param max the largest number of items to retrieve
+     * @param into the array to place the items in
+     * @param offset the index in the array to place the first item at
+     * @return the number of items retrieved, which is fewer than max only if the source has run out or the rest of
+     * its mail has not yet arrived
+     */
+    default int nextBatch(int max, MailItem[] into, int offset) {
+        int n = 0;
+        try {
+            while (n < max && hasNextMail()) {
+                into[offset + n] = nextItem();
+                n++;
+            }
+        } catch (SourceExhaustedException e) {
+            // The source ran out despite reporting mail, so return what was taken
+        }
+        return n;
+    }
 }
@@ -0,0 +1,19 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+/**
+ * A factory for the mail source of a single simulation run. Factories over fixed mail, such as a pre-generated
+ * dataset or a recorded trace, hand every run its own source over the same items, so runs can replay them
+ * concurrently.
+ */
+public interface MailSourceFactory {
+
+    /**
+     * Create a mail source for a single run, starting from the first item
+     * @param clock the clock of the run, used to stamp each item with the tick it arrives
+     * @return a new mail source
+     */
+    MailSource createMailSource(SimulationClock clock);
+}
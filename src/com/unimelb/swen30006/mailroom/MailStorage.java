@@ -47,10 +47,84 @@ public interface MailStorage {
 
     /**
      * Retrieves a box by identifier for delivery by delivery bot. Will also notify anyone waiting on change in state
-     * to the event.
+     * to the event, through {@link StorageListener#boxDelivered}.
      * @param identifer identifier of the storage box requested for delivery
      * @return The box that matches this identifier
      * @throws UnknownIdentifierException if there is no box stored with this identifier
      */
     StorageBox deliverBox(String identifer) throws UnknownIdentifierException;
+
+    /**
+     * Start telling a listener of every box created, item added, box filled and box delivered
+     * @param listener the listener to add
+     */
+    void addListener(StorageListener listener);
+
+    /**
+     * Stop telling a listener of changes
+     * @param listener the listener to remove
+     */
+    void removeListener(StorageListener listener);
+
+    /**
+     * Find the box with the least room that can still fit an item, among boxes holding no mail for a floor below
+     * the given floor, so that sorting can pack boxes tightly. Empty boxes suit every floor. Storage units that
+     * index their boxes answer in O(log n) time for n boxes.
+     * @param size the size of the item
+     * @param lowestFloor the lowest floor the box may hold mail for
+     * @return the box, or null if no stored box fits
+     */
+    BoxIndex.Entry findSmallestFit(int size, int lowestFloor);
+
+    /**
+     * Find the box with the least room left, so that selection can send the fullest box out. Ties go to the box in
+     * the lowest slot, or to the oldest box if storage is not slot keyed.
+     * @return the box, or null if storage holds no boxes
+     */
+    BoxIndex.Entry findFullestBox();
+
+    /**
+     * Find a storage box by ID, without throwing if there is none. For use on paths where a missing box
+     * is handled as a normal outcome.
+     * @param name the id of the box
+     * @return The box that matches this identifier, or null if there is no box stored with this identifier
+     */
+    default StorageBox findBox(String name) {
+        try {
+            return retrieveBox(name);
+        } catch (UnknownIdentifierException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Create a storage box that can be retrieved later by ID, reporting a lack of space as a result rather
+     * than an exception.
+     * @param name the requested identifier
+     * @return true if the box was created, false if there are no spaces remaining for new boxes
+     * @throws DuplicateIdentifierException if the identifier already exists
+     */
+    default boolean tryCreateBox(String name) throws DuplicateIdentifierException {
+        if (isFull()) {
+            return false;
+        }
+        try {
+            return createBox(name);
+        } catch (MailOverflowException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Retrieves a box by identifier for delivery by delivery bot, without throwing if there is none.
+     * @param identifer identifier of the storage box requested for delivery
+     * @return The box that matches this identifier, or null if there is no box stored with this identifier
+     */
+    default StorageBox tryDeliverBox(String identifer) {
+        try {
+            return deliverBox(identifer);
+        } catch (UnknownIdentifierException e) {
+            return null;
+        }
+    }
 }
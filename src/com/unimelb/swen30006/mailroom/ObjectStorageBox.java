@@ -0,0 +1,139 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+import com.unimelb.swen30006.mailroom.exceptions.BoxEmptyException;
+
+import java.util.*;
+
+/**
+ * A storage box that holds its mail as MailItem objects grouped by destination floor, so the mail for a floor
+ * can be found and removed without looking at the rest of the box.
+ */
+public class ObjectStorageBox extends StorageBox {
+    /** The mail stored in this box, grouped by destination floor */
+    private final TreeMap<Integer, ArrayList<MailItem>> mail;
+    /** The tick each item was stored at, grouped and ordered as in the mail map */
+    private final HashMap<Integer, long[]> storedTicks;
+
+    /**
+     * Create a storage box of the given max number of mail units
+     * @param maxSize the maximum number of mail units this box will fit
+     */
+    public ObjectStorageBox(int maxSize){
+        super(maxSize);
+        this.mail = new TreeMap<Integer, ArrayList<MailItem>>();
+        this.storedTicks = new HashMap<Integer, long[]>();
+    }
+
+    @Override
+    public StorageBox createEmpty(int maxSize){
+        return new ObjectStorageBox(maxSize);
+    }
+
+    @Override
+    public boolean offerItem(MailItem item, long tick){
+        if(!this.canHold(item)){
+            return false;
+        }
+        ArrayList<MailItem> floorItems = this.mail.get(item.floor);
+        if(floorItems == null){
+            floorItems = new ArrayList<MailItem>();
+            this.mail.put(item.floor, floorItems);
+        }
+        // Keep the stored ticks in step with the list, growing them as the list would
+        long[] ticks = this.storedTicks.get(item.floor);
+        if(ticks == null || ticks.length == floorItems.size()){
+            ticks = (ticks == null) ? new long[4] : Arrays.copyOf(ticks, ticks.length * 2);
+            this.storedTicks.put(item.floor, ticks);
+        }
+        ticks[floorItems.size()] = tick;
+        floorItems.add(item);
+        this.added(item);
+        return true;
+    }
+
+    @Override
+    public MailItem pollItem(){
+        if(this.isEmpty()){
+            return null;
+        }
+        Map.Entry<Integer, ArrayList<MailItem>> floorItems = this.mail.lastEntry();
+        MailItem item = floorItems.getValue().remove(floorItems.getValue().size() - 1);
+        if(floorItems.getValue().isEmpty()){
+            this.mail.remove(floorItems.getKey());
+            this.storedTicks.remove(floorItems.getKey());
+        }
+        this.removed(item);
+        return item;
+    }
+
+    @Override
+    public List<MailItem> removeItemsForFloor(int floor){
+        ArrayList<MailItem> floorItems = this.mail.remove(floor);
+        if(floorItems == null){
+            return Collections.emptyList();
+        }
+        this.storedTicks.remove(floor);
+        for(MailItem item : floorItems){
+            this.removed(item);
+        }
+        return floorItems;
+    }
+
+    @Override
+    public void recordDwell(LatencyTracker tracker, long tick){
+        for(Map.Entry<Integer, ArrayList<MailItem>> floorItems : this.mail.entrySet()){
+            long[] ticks = this.storedTicks.get(floorItems.getKey());
+            ArrayList<MailItem> items = floorItems.getValue();
+            for(int i = 0; i < items.size(); i++){
+                tracker.record(LatencyTracker.Stage.Dwell, items.get(i), tick - ticks[i]);
+            }
+        }
+    }
+
+    @Override
+    public int lowestFloor() throws BoxEmptyException {
+        // Checks the map rather than the count, which lags behind it as a floor's items are reported removed
+        if(this.mail.isEmpty()){
+            throw new BoxEmptyException();
+        }
+        return this.mail.firstKey();
+    }
+
+    @Override
+    public int highestFloor() throws BoxEmptyException {
+        if(this.mail.isEmpty()){
+            throw new BoxEmptyException();
+        }
+        return this.mail.lastKey();
+    }
+
+    @Override
+    public int[] floors(){
+        int[] floors = new int[this.mail.size()];
+        int i = 0;
+        for(Integer floor : this.mail.keySet()){
+            floors[i++] = floor;
+        }
+        return floors;
+    }
+
+    @Override
+    protected int numDests(){
+        // Mail is grouped by floor, so the number of groups is the number of unique floors to deliver to
+        return this.mail.size();
+    }
+
+    @Override
+    protected long earliestArrival(){
+        long earliest = Long.MAX_VALUE;
+        for(ArrayList<MailItem> floorItems : this.mail.values()){
+            for(MailItem item : floorItems){
+                earliest = Math.min(earliest, item.arrivalTime);
+            }
+        }
+        return earliest;
+    }
+}
@@ -0,0 +1,164 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+/**
+ * Encodes a whole stored mail item in a single long, so large numbers of items can be held in primitive arrays
+ * rather than as individual objects. From the lowest bit up, the word holds 11 bits of floor, 7 bits of size, two
+ * bits each for the ordinals of the type and priority, 15 bits of the delay between the item arriving and being
+ * stored, and 26 bits of arrival time. The top bit is never set, so holders of packed items may use words with it
+ * set for their own purposes.
+ *
+ * <p>
+ * Every mail source addresses its mail to the same person, so the addressee is not encoded. Items addressed to
+ * anyone else, or with a field outside the ranges below, cannot be packed, which {@link #canPack} reports.
+ */
+public final class PackedMailItem {
+
+    /** The one addressee that packed items can have */
+    public static final String ADDRESSEE = "Mat";
+
+    /** The lowest and highest floors that can be packed */
+    public static final int MIN_FLOOR = -(1 << 10);
+    public static final int MAX_FLOOR = (1 << 10) - 1;
+    /** The largest size that can be packed, in mail units */
+    public static final int MAX_SIZE = (1 << 7) - 1;
+    /** The longest delay between arriving and being stored that can be packed, in ticks */
+    public static final long MAX_DELAY = (1L << 15) - 1;
+    /** The latest arrival time that can be packed */
+    public static final long MAX_ARRIVAL = (1L << 26) - 1;
+
+    private static final int FLOOR_BITS = 11;
+    private static final int FLOOR_MASK = (1 << FLOOR_BITS) - 1;
+    private static final int SIZE_SHIFT = 11;
+    private static final int TYPE_SHIFT = 18;
+    private static final int PRIORITY_SHIFT = 20;
+    private static final int DELAY_SHIFT = 22;
+    private static final int ARRIVAL_SHIFT = 37;
+
+    /** The types and priorities in ordinal order, as packed */
+    private static final MailItem.MailType[] TYPES = MailItem.MailType.values();
+    private static final MailItem.MailPriority[] PRIORITIES = MailItem.MailPriority.values();
+
+    private PackedMailItem() {
+    }
+
+    /**
+     * Check whether an item can be packed
+     * @param item the item to pack
+     * @param storedTick the tick the item is being stored at
+     * @return true if the item is addressed to {@link #ADDRESSEE} and every field is within range
+     */
+    public static boolean canPack(MailItem item, long storedTick) {
+        long delay = storedTick - item.arrivalTime;
+        return ADDRESSEE.equals(item.adressee) && item.floor >= MIN_FLOOR && item.floor <= MAX_FLOOR
+                && item.size >= 0 && item.size <= MAX_SIZE && item.arrivalTime >= 0
+                && item.arrivalTime <= MAX_ARRIVAL && delay >= 0 && delay <= MAX_DELAY;
+    }
+
+    /**
+     * Pack a mail item along with the tick it is being stored at
+     * @param item the item to pack
+     * @param storedTick the tick the item is being stored at
+     * @return the packed item
+     * @throws IllegalArgumentException if the item cannot be packed
+     */
+    public static long pack(MailItem item, long storedTick) {
+        if (!ADDRESSEE.equals(item.adressee)) {
+            throw new IllegalArgumentException("Cannot pack an item addressed to " + item.adressee);
+        }
+        return pack(item.packageType, item.priority, item.floor, item.size, item.arrivalTime, storedTick);
+    }
+
+    /**
+     * Pack the attributes of a mail item
+     * @param type the type of the item
+     * @param priority the priority of the item
+     * @param floor the floor the item is being sent to
+     * @param size the size of the item, in mail units
+     * @param arrivalTime the tick the item was taken from its mail source
+     * @param storedTick the tick the item is being stored at
+     * @return the packed item
+     * @throws IllegalArgumentException if the floor, size, arrival time or delay is out of range
+     */
+    public static long pack(MailItem.MailType type, MailItem.MailPriority priority, int floor, int size,
+                            long arrivalTime, long storedTick) {
+        if (floor < MIN_FLOOR || floor > MAX_FLOOR) {
+            throw new IllegalArgumentException("Cannot pack an item for floor " + floor);
+        }
+        if (size < 0 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Cannot pack an item of size " + size);
+        }
+        if (arrivalTime < 0 || arrivalTime > MAX_ARRIVAL) {
+            throw new IllegalArgumentException("Cannot pack an item arriving at " + arrivalTime);
+        }
+        long delay = storedTick - arrivalTime;
+        if (delay < 0 || delay > MAX_DELAY) {
+            throw new IllegalArgumentException("Cannot pack an item arriving at " + arrivalTime
+                    + " and stored at " + storedTick);
+        }
+        return (floor & FLOOR_MASK) | ((long) size << SIZE_SHIFT) | ((long) type.ordinal() << TYPE_SHIFT)
+                | ((long) priority.ordinal() << PRIORITY_SHIFT) | (delay << DELAY_SHIFT)
+                | (arrivalTime << ARRIVAL_SHIFT);
+    }
+
+    /**
+     * Rebuild a mail item from its packed form
+     * @param packed the packed item
+     * @return the item
+     */
+    public static MailItem unpack(long packed) {
+        return new MailItem(type(packed), priority(packed), floor(packed), ADDRESSEE, size(packed),
+                arrivalTime(packed));
+    }
+
+    /**
+     * @param packed the packed item
+     * @return the floor the item is being sent to
+     */
+    public static int floor(long packed) {
+        // Shift the floor to the top of an int and back down again to sign extend it
+        return (int) packed << (Integer.SIZE - FLOOR_BITS) >> (Integer.SIZE - FLOOR_BITS);
+    }
+
+    /**
+     * @param packed the packed item
+     * @return the size of the item, in mail units
+     */
+    public static int size(long packed) {
+        return (int) (packed >>> SIZE_SHIFT) & MAX_SIZE;
+    }
+
+    /**
+     * @param packed the packed item
+     * @return the type of the item
+     */
+    public static MailItem.MailType type(long packed) {
+        return TYPES[(int) (packed >>> TYPE_SHIFT) & 0x3];
+    }
+
+    /**
+     * @param packed the packed item
+     * @return the priority of the item
+     */
+    public static MailItem.MailPriority priority(long packed) {
+        return PRIORITIES[(int) (packed >>> PRIORITY_SHIFT) & 0x3];
+    }
+
+    /**
+     * @param packed the packed item
+     * @return the tick the item was taken from its mail source
+     */
+    public static long arrivalTime(long packed) {
+        return (packed >>> ARRIVAL_SHIFT) & MAX_ARRIVAL;
+    }
+
+    /**
+     * @param packed the packed item
+     * @return the tick the item was stored at
+     */
+    public static long storedTick(long packed) {
+        return arrivalTime(packed) + ((packed >>> DELAY_SHIFT) & MAX_DELAY);
+    }
+}
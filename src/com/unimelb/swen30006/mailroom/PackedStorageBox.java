@@ -0,0 +1,257 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+import com.unimelb.swen30006.mailroom.exceptions.BoxEmptyException;
+
+import java.util.*;
+
+/**
+ * A storage box that holds its mail as {@link PackedMailItem packed longs} in a growable primitive array rather
+ * than as MailItem objects, so a stored item, along with the tick it was stored at, costs one array slot instead
+ * of its own object. Items are kept ordered by destination floor, and in the order they were stored within each
+ * floor, so the box behaves exactly as an {@link ObjectStorageBox} does. Items are rebuilt as they are taken out
+ * of the box.
+ *
+ * <p>
+ * Items that cannot be packed, such as those addressed to anyone other than {@link PackedMailItem#ADDRESSEE},
+ * are kept as objects in a side table, and their slot in the array holds their place in the table instead.
+ *
+ * <p>
+ * Keeping items in floor order means each item is inserted rather than appended, shifting the items for higher
+ * floors up one place, so storing an item costs time in proportion to the mail in the box where an
+ * ObjectStorageBox takes constant time. Boxes hold tens of items, so this is a short copy within one array, and
+ * in return the floor bounds and per-floor removal need at most a binary search.
+ */
+public class PackedStorageBox extends StorageBox {
+
+    /** The initial length of the arrays, which double whenever they fill */
+    private static final int INITIAL_CAPACITY = 8;
+    /** Set in the slots of items held in the side table, with the item's place in the table in the low bits */
+    private static final long ESCAPED = Long.MIN_VALUE;
+
+    /** The packed items, ordered by floor and then by the order they were stored in */
+    private long[] items;
+    /** The number of items stored */
+    private int numItems;
+    /** The number of different floors the stored items are addressed to */
+    private int numDests;
+
+    /** Items that could not be packed and the ticks they were stored at, made when the first is stored */
+    private MailItem[] escaped;
+    private long[] escapedTicks;
+    /** The places in the side table freed by removed items, and the number of places ever used */
+    private int[] freeEscapes;
+    private int numFreeEscapes;
+    private int numEscapes;
+
+    /**
+     * Create a packed storage box of the given max number of mail units
+     * @param maxSize the maximum number of mail units this box will fit
+     */
+    public PackedStorageBox(int maxSize){
+        super(maxSize);
+        this.items = new long[INITIAL_CAPACITY];
+    }
+
+    @Override
+    public StorageBox createEmpty(int maxSize){
+        return new PackedStorageBox(maxSize);
+    }
+
+    @Override
+    public boolean offerItem(MailItem item, long tick){
+        if(!this.canHold(item)){
+            return false;
+        }
+        long word = PackedMailItem.canPack(item, tick) ? PackedMailItem.pack(item, tick) : this.escape(item, tick);
+        if(this.numItems == this.items.length){
+            this.items = Arrays.copyOf(this.items, this.items.length * 2);
+        }
+        // Insert after every item for the same or a lower floor, shifting the rest up one place
+        int index = this.end(item.floor);
+        if(index == 0 || this.floor(this.items[index - 1]) != item.floor){
+            this.numDests += 1;
+        }
+        int moved = this.numItems - index;
+        if(moved > 0){
+            System.arraycopy(this.items, index, this.items, index + 1, moved);
+        }
+        this.items[index] = word;
+        this.numItems += 1;
+        this.added(item);
+        return true;
+    }
+
+    @Override
+    public MailItem pollItem(){
+        if(this.numItems == 0){
+            return null;
+        }
+        // The last item is the most recently stored for the highest floor
+        int last = this.numItems - 1;
+        MailItem item = this.take(this.items[last]);
+        this.numItems = last;
+        if(last == 0 || this.floor(this.items[last - 1]) != item.floor){
+            this.numDests -= 1;
+        }
+        this.removed(item);
+        return item;
+    }
+
+    @Override
+    public List<MailItem> removeItemsForFloor(int floor){
+        int end = this.end(floor);
+        int start = end;
+        while(start > 0 && this.floor(this.items[start - 1]) == floor){
+            start--;
+        }
+        if(start == end){
+            return Collections.emptyList();
+        }
+        ArrayList<MailItem> floorItems = new ArrayList<MailItem>(end - start);
+        for(int i = start; i < end; i++){
+            floorItems.add(this.take(this.items[i]));
+        }
+        // Close the gap left by the floor
+        System.arraycopy(this.items, end, this.items, start, this.numItems - end);
+        this.numItems -= end - start;
+        this.numDests -= 1;
+        for(MailItem item : floorItems){
+            this.removed(item);
+        }
+        return floorItems;
+    }
+
+    @Override
+    public void recordDwell(LatencyTracker tracker, long tick){
+        for(int i = 0; i < this.numItems; i++){
+            long word = this.items[i];
+            if(word < 0){
+                int index = (int) word;
+                tracker.record(LatencyTracker.Stage.Dwell, this.escaped[index], tick - this.escapedTicks[index]);
+            } else {
+                tracker.record(LatencyTracker.Stage.Dwell, PackedMailItem.unpack(word),
+                        tick - PackedMailItem.storedTick(word));
+            }
+        }
+    }
+
+    @Override
+    public int lowestFloor() throws BoxEmptyException {
+        if(this.numItems == 0){
+            throw new BoxEmptyException();
+        }
+        return this.floor(this.items[0]);
+    }
+
+    @Override
+    public int highestFloor() throws BoxEmptyException {
+        if(this.numItems == 0){
+            throw new BoxEmptyException();
+        }
+        return this.floor(this.items[this.numItems - 1]);
+    }
+
+    @Override
+    public int[] floors(){
+        int[] floors = new int[this.numDests];
+        int dests = 0;
+        for(int i = 0; i < this.numItems; i++){
+            int floor = this.floor(this.items[i]);
+            if(dests == 0 || floors[dests - 1] != floor){
+                floors[dests++] = floor;
+            }
+        }
+        return floors;
+    }
+
+    @Override
+    protected int numDests(){
+        return this.numDests;
+    }
+
+    @Override
+    protected long earliestArrival(){
+        long earliest = Long.MAX_VALUE;
+        for(int i = 0; i < this.numItems; i++){
+            long word = this.items[i];
+            long arrival = (word < 0) ? this.escaped[(int) word].arrivalTime : PackedMailItem.arrivalTime(word);
+            earliest = Math.min(earliest, arrival);
+        }
+        return earliest;
+    }
+
+    /**
+     * Find where the items for a floor end, by binary search over the floor ordered items
+     * @param floor the floor to search for
+     * @return the index of the first item for a higher floor, or the number of items if there is none
+     */
+    private int end(int floor){
+        int low = 0;
+        int high = this.numItems;
+        while(low < high){
+            int mid = (low + high) >>> 1;
+            if(this.floor(this.items[mid]) <= floor){
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Retrieve the floor of a stored item
+     * @param word the slot of the item
+     * @return the floor the item is being sent to
+     */
+    private int floor(long word){
+        return (word < 0) ? this.escaped[(int) word].floor : PackedMailItem.floor(word);
+    }
+
+    /**
+     * Rebuild an item being taken out of the box, freeing its place in the side table if it has one
+     * @param word the slot of the item
+     * @return the item
+     */
+    private MailItem take(long word){
+        if(word >= 0){
+            return PackedMailItem.unpack(word);
+        }
+        int index = (int) word;
+        MailItem item = this.escaped[index];
+        this.escaped[index] = null;
+        this.freeEscapes[this.numFreeEscapes++] = index;
+        return item;
+    }
+
+    /**
+     * Hold an item that cannot be packed in the side table
+     * @param item the item
+     * @param tick the tick the item is being stored at
+     * @return the slot to store in place of the item
+     */
+    private long escape(MailItem item, long tick){
+        int index;
+        if(this.numFreeEscapes > 0){
+            index = this.freeEscapes[--this.numFreeEscapes];
+        } else {
+            if(this.escaped == null){
+                this.escaped = new MailItem[INITIAL_CAPACITY];
+                this.escapedTicks = new long[INITIAL_CAPACITY];
+                this.freeEscapes = new int[INITIAL_CAPACITY];
+            } else if(this.numEscapes == this.escaped.length){
+                int length = this.escaped.length * 2;
+                this.escaped = Arrays.copyOf(this.escaped, length);
+                this.escapedTicks = Arrays.copyOf(this.escapedTicks, length);
+                this.freeEscapes = Arrays.copyOf(this.freeEscapes, length);
+            }
+            index = this.numEscapes++;
+        }
+        this.escaped[index] = item;
+        this.escapedTicks[index] = tick;
+        return ESCAPED | index;
+    }
+}
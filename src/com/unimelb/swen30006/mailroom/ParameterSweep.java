@@ -0,0 +1,264 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+import com.unimelb.swen30006.mailroom.samples.MailDataset;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * A driver that simulates every combination of a grid of building parameters and strategy sets, writing
+ * the averaged results of each point as a row of a CSV file. Points are independent, so they are spread
+ * over all available cores, and each row is written as soon as its point completes.
+ *
+ * <p>
+ * Usage: {@code ParameterSweep <output.csv> [base=<building>] [strategy=one,two] [runs=<n>] [random]
+ * [<parameter>=<min>[:<max>[:<step>]]...]} where the parameters are those of {@link SimulationConfig}.
+ * Parameters that are not swept keep the values of the base building.
+ */
+public class ParameterSweep {
+
+	/** The names of the parameters that may be swept, in CSV column order */
+	private static final String[] PARAMETERS = { "minFloor", "maxFloor", "numMail", "maxBoxes", "maxMailUnits",
+			"numBots", "mailLevel", "sortThroughput", "carryingCapacity" };
+
+	/** The CSV header, matching the columns written for each point */
+	private static final String HEADER = "point,minFloor,maxFloor,numMail,maxBoxes,maxMailUnits,numBots,mailLevel,sortThroughput,"
+			+ "carryingCapacity,strategy,runs,deliveries,timeTaken,timePerBot,floorsPerDelivery,packagesPerDelivery,"
+			+ "runTimeMean,runTimeStdDev,runTimeP50,runTimeP95,runTimeP99,runTimeMax";
+
+	/** The default number of simulations averaged for each point */
+	private static final int NUM_RUNS = 10;
+
+	public static void main(String args[]) throws IOException {
+		if (args.length < 1) {
+			System.err.println("usage: ParameterSweep <output.csv> [base=<building>] [strategy=one,two] "
+					+ "[runs=<n>] [random] [<parameter>=<min>[:<max>[:<step>]]...]");
+			System.exit(1);
+		}
+
+		// Start every parameter at the value of the base building, with the default strategies
+		String building = "detailed";
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].startsWith("base=")) {
+				building = args[i].substring("base=".length());
+			}
+		}
+		SimulationConfig base = SimulationConfig.forBuilding(building);
+		int[][] ranges = { { base.minFloor }, { base.maxFloor }, { base.numMail }, { base.maxBoxes },
+				{ base.maxMailUnits }, { base.numBots }, { base.mailLevel }, { base.sortThroughput },
+				{ base.carryingCapacity } };
+		List<StrategySet> strategySets = new ArrayList<StrategySet>();
+		int numRuns = NUM_RUNS;
+		boolean predictable = true;
+
+		// Apply the remaining arguments
+		for (int i = 1; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("random")) {
+				predictable = false;
+				continue;
+			}
+			int split = arg.indexOf('=');
+			if (split < 0) {
+				throw new IllegalArgumentException("Expected name=value but found " + arg);
+			}
+			String name = arg.substring(0, split);
+			String value = arg.substring(split + 1);
+			if (name.equals("base")) {
+				continue;
+			} else if (name.equals("runs")) {
+				numRuns = Integer.parseInt(value);
+			} else if (name.equals("strategy")) {
+				for (String strategy : value.split(",")) {
+					strategySets.add(StrategySet.valueOf(strategy.trim().toUpperCase()));
+				}
+			} else {
+				ranges[parameterIndex(name)] = parseRange(value);
+			}
+		}
+		if (strategySets.isEmpty()) {
+			strategySets.add(StrategySet.forBuilding(building));
+		}
+
+		PrintWriter out = new PrintWriter(new FileWriter(args[0]));
+		try {
+			out.println(HEADER);
+			out.flush();
+			int points = sweep(expand(ranges), strategySets, numRuns, predictable, out);
+			System.out.println("Simulated " + points + " points into " + args[0]);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Simulate every point of a grid against every strategy set, writing a CSV row for each as it completes.
+	 * Configurations that cannot be simulated are reported and skipped.
+	 *
+	 * @param configs
+	 *            the building configurations making up the grid
+	 * @param strategySets
+	 *            the strategies to simulate each configuration with
+	 * @param numRuns
+	 *            the number of runs averaged for each point
+	 * @param predictable
+	 *            whether every run uses the fixed seed
+	 * @param out
+	 *            where to write the rows, which may be written in any order
+	 * @return the number of points simulated
+	 */
+	public static int sweep(List<SimulationConfig> configs, List<StrategySet> strategySets, final int numRuns,
+			boolean predictable, final PrintWriter out) {
+		// Every point uses the same seeds, so points differ only by their parameters
+		final long[] seeds = Simulation.drawSeeds(numRuns, predictable);
+		// Points addressing the same floors share their mail, which is generated by whichever point needs it first
+		final ConcurrentMap<String, MailDataset[]> mail = new ConcurrentHashMap<String, MailDataset[]>();
+
+		ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+		try {
+			int point = 0;
+			for (final SimulationConfig config : configs) {
+				try {
+					config.validate();
+				} catch (IllegalArgumentException e) {
+					System.err.println("Skipping " + config + ": " + e.getMessage());
+					continue;
+				}
+				for (final StrategySet strategySet : strategySets) {
+					final int index = point++;
+					tasks.add(pool.submit(() -> writeRow(out, index, config, strategySet, numRuns,
+							runPoint(config, strategySet.factoryFor(config), mail.computeIfAbsent(
+									config.minFloor + ":" + config.maxFloor + ":" + config.numMail,
+									key -> Simulation.generateMail(config, seeds))))));
+				}
+			}
+			for (ForkJoinTask<?> task : tasks) {
+				task.join();
+			}
+		} finally {
+			pool.shutdown();
+		}
+		return tasks.size();
+	}
+
+	/**
+	 * Simulate a single point of the grid once for each seed
+	 *
+	 * @param config
+	 *            the building to simulate
+	 * @param strategies
+	 *            the strategies for this point
+	 * @param mail
+	 *            the mail for each run
+	 * @return the merged statistics of every run
+	 */
+	private static StatisticsAggregator runPoint(SimulationConfig config, StrategyFactory strategies,
+			MailDataset[] mail) {
+		StatisticsAggregator statistics = new StatisticsAggregator();
+		for (MailDataset runMail : mail) {
+			statistics.merge(Simulation.runOnce(config, runMail, strategies, SchedulerType.LOCKSTEP, StorageType.SIMPLE, false, false, null, null));
+		}
+		return statistics;
+	}
+
+	/**
+	 * Average the runs of a point as the Simulation driver does, and write them as a CSV row along with the
+	 * distribution of delivery run times
+	 */
+	private static void writeRow(PrintWriter out, int index, SimulationConfig config, StrategySet strategySet,
+			int numRuns, StatisticsAggregator statistics) {
+		double totalFloors = statistics.numFloors().sum() / (double) numRuns;
+		double totalTime = statistics.timeTaken().sum() / (double) numRuns;
+		double numDeliveries = statistics.numDeliveries() / (double) numRuns;
+		StreamingStatistic runTime = statistics.timeTaken();
+
+		String row = index + "," + config.minFloor + "," + config.maxFloor + "," + config.numMail + ","
+				+ config.maxBoxes + "," + config.maxMailUnits + "," + config.numBots + "," + config.mailLevel + "," + config.sortThroughput + ","
+				+ config.carryingCapacity + "," + strategySet.name().toLowerCase() + "," + numRuns + ","
+				+ numDeliveries + "," + totalTime + ","
+				+ totalTime / (double) config.numBots + "," + totalFloors / numDeliveries + ","
+				+ config.numMail / numDeliveries + "," + runTime.mean() + "," + runTime.standardDeviation() + ","
+				+ runTime.percentile(50) + "," + runTime.percentile(95) + "," + runTime.percentile(99) + ","
+				+ runTime.max();
+		// Rows arrive from many workers, so each is written and flushed whole
+		synchronized (out) {
+			out.println(row);
+			out.flush();
+		}
+	}
+
+	/**
+	 * Expand the range of each parameter into every combination of values
+	 *
+	 * @param ranges
+	 *            the values of each parameter, in the order of {@link #PARAMETERS}
+	 * @return a configuration for each combination
+	 */
+	private static List<SimulationConfig> expand(int[][] ranges) {
+		List<SimulationConfig> configs = new ArrayList<SimulationConfig>();
+		int[] position = new int[ranges.length];
+		while (true) {
+			configs.add(new SimulationConfig(ranges[0][position[0]], ranges[1][position[1]], ranges[2][position[2]],
+					ranges[3][position[3]], ranges[4][position[4]], ranges[5][position[5]], ranges[6][position[6]],
+					ranges[7][position[7]], ranges[8][position[8]]));
+			// Advance the last parameter fastest, carrying into the ones before it
+			int p = ranges.length - 1;
+			while (p >= 0 && ++position[p] == ranges[p].length) {
+				position[p] = 0;
+				p--;
+			}
+			if (p < 0) {
+				return configs;
+			}
+		}
+	}
+
+	/**
+	 * Parse a range of the form min[:max[:step]]
+	 *
+	 * @param value
+	 *            the range
+	 * @return each value in the range, in increasing order
+	 */
+	private static int[] parseRange(String value) {
+		String[] parts = value.split(":");
+		int min = Integer.parseInt(parts[0]);
+		int max = (parts.length > 1) ? Integer.parseInt(parts[1]) : min;
+		int step = (parts.length > 2) ? Integer.parseInt(parts[2]) : 1;
+		if (max < min || step < 1) {
+			throw new IllegalArgumentException("Invalid range " + value);
+		}
+		int[] values = new int[(max - min) / step + 1];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = min + i * step;
+		}
+		return values;
+	}
+
+	/**
+	 * Find the position of a parameter
+	 *
+	 * @param name
+	 *            the name of the parameter
+	 * @return its index in {@link #PARAMETERS}
+	 */
+	private static int parameterIndex(String name) {
+		for (int i = 0; i < PARAMETERS.length; i++) {
+			if (PARAMETERS[i].equals(name)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("Unknown parameter " + name);
+	}
+}
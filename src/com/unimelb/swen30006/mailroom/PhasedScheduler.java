@@ -0,0 +1,263 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the delivery trips of bots on a fixed pool of worker threads, while the thread running the scheduler steps
+ * the sorter and gives each idle bot its turn to choose a box, in the same order as the fixed tick loop (sorter
+ * first, then bots by index). Conflicts over storage and the selection strategy are therefore always resolved in
+ * favour of the lower index, and the delivery statistics produced are identical to the fixed tick loop.
+ *
+ * <p>
+ * Once a bot takes a box, its trip touches nothing shared with the sorter or other bots, so the whole trip is
+ * handed to a worker as one task, to be delivered a floor per step while the scheduling thread carries on. A
+ * trip visits one floor per tick, so the scheduling thread knows the earliest tick the bot could be idle again
+ * from the floors it holds mail for, and only waits on the trip then, learning from it the tick it really ended.
+ * There is no barrier between ticks, and the pool is sized to the processors available rather than the number of
+ * bots. As in the {@link EventScheduler}, idle bots that would find nothing new in storage are skipped, as is a
+ * sorter blocked on full storage until a box is delivered, both relying on the changes storage reports. Any
+ * storage may be used, since storage is only touched on the scheduling thread.
+ */
+public class PhasedScheduler implements StorageListener {
+
+    /** The stack size of each worker thread, which never calls deeply */
+    private static final long STACK_SIZE = 256 * 1024;
+
+    /** The sorter feeding storage */
+    private final MailSorter sorter;
+    /** The bots delivering from storage */
+    private final DeliveryBot[] bots;
+    /** The storage shared by the sorter and bots, listened to while running */
+    private final MailStorage storage;
+    /** The clock of the simulation, advanced as each tick begins */
+    private final SimulationClock clock;
+
+    /** The trip each bot is on, or null if the bot is idle */
+    private final Future<?>[] trips;
+    /** The number of steps each bot's trip takes, set by the worker delivering it */
+    private final int[] tripSteps;
+    /** The tick each bot took the box for its trip */
+    private final long[] tripStart;
+    /** The first tick each bot is idle again, or the earliest it could be while its trip is not waited on */
+    private final long[] tripEarliestEnd;
+    /** The number of changes made to storage so far */
+    private long changes;
+    /** The number of changes each bot had seen when it last chose a box */
+    private final long[] seen;
+    /** Whether the sorter is skipped until a box is delivered */
+    private boolean sorterParked;
+
+    /**
+     * Create a scheduler over a sorter and its delivery bots
+     * @param sorter the mail sorter, stepped first in every tick
+     * @param bots the delivery bots, stepped in index order after the sorter
+     * @param storage the storage the sorter and bots share
+     * @param clock the clock to advance to each tick as it begins
+     */
+    public PhasedScheduler(MailSorter sorter, DeliveryBot[] bots, MailStorage storage, SimulationClock clock) {
+        this.sorter = sorter;
+        this.bots = bots;
+        this.storage = storage;
+        this.clock = clock;
+        this.trips = new Future<?>[bots.length];
+        this.tripSteps = new int[bots.length];
+        this.tripStart = new long[bots.length];
+        this.tripEarliestEnd = new long[bots.length];
+        // Every bot chooses in the first tick, as if storage had just changed
+        this.seen = new long[bots.length];
+        this.changes = 1;
+    }
+
+    /**
+     * Run until the sorter and every bot can finish
+     * @return the number of ticks simulated
+     */
+    public long run() {
+        int workers = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), this.bots.length));
+        ExecutorService pool = Executors.newFixedThreadPool(workers, task -> {
+            Thread thread = new Thread(null, task, "bot-worker", STACK_SIZE);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.storage.addListener(this);
+        try {
+            for (long tick = 0;; tick++) {
+                this.clock.advanceTo(tick);
+
+                // Everything but the trips shares storage, so takes its turn in order
+                stepSorter();
+                for (int b = 0; b < this.bots.length; b++) {
+                    if (!isOnTrip(b, tick)) {
+                        chooseBox(b, tick, pool);
+                    }
+                }
+
+                long finished = finishedIn(tick);
+                if (finished >= 0) {
+                    return finished + 1;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            this.storage.removeListener(this);
+        }
+    }
+
+    /**
+     * Check if a bot is still part way through its trip in a tick, waiting for the trip to be delivered if it may
+     * have ended by then
+     * @param index the index of the bot
+     * @param tick the current tick
+     * @return true if the bot is delivering in the tick, so does not choose a box
+     */
+    private boolean isOnTrip(int index, long tick) {
+        if (tick < this.tripEarliestEnd[index]) {
+            return true;
+        }
+        awaitTrip(index);
+        return tick < this.tripEarliestEnd[index];
+    }
+
+    /**
+     * Wait for a bot's trip to be delivered, so the bot may be read and stepped by the scheduling thread again
+     * @param index the index of the bot
+     */
+    private void awaitTrip(int index) {
+        Future<?> trip = this.trips[index];
+        if (trip == null) {
+            return;
+        }
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    trip.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            throw failed(e.getCause());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        this.trips[index] = null;
+        // The bot is idle again from the tick after its last step
+        this.tripEarliestEnd[index] = this.tripStart[index] + this.tripSteps[index] + 1;
+    }
+
+    /**
+     * Step the sorter, unless it is finished or blocked until a box is delivered
+     */
+    private void stepSorter() {
+        // A finished sorter never does anything again
+        if (this.sorter.canFinish() || this.sorterParked) {
+            return;
+        }
+        this.sorter.step();
+        this.sorterParked = !this.sorter.canFinish() && this.sorter.isBlocked();
+    }
+
+    /**
+     * Give an idle bot its turn to choose a box, handing its trip to a worker if it takes one
+     * @param index the index of the bot
+     * @param tick the current tick
+     * @param pool the workers delivering trips
+     */
+    private void chooseBox(int index, long tick, ExecutorService pool) {
+        DeliveryBot bot = this.bots[index];
+        // A waiting bot that has seen every change would do nothing
+        if (bot.isWaiting() && this.seen[index] == this.changes) {
+            return;
+        }
+        this.seen[index] = this.changes;
+        bot.step();
+        if (bot.isDelivering()) {
+            this.tripStart[index] = tick;
+            this.tripEarliestEnd[index] = tick + bot.floorsLeft() + 1;
+            this.trips[index] = pool.submit(() -> {
+                this.tripSteps[index] = bot.finishTrip();
+            });
+        }
+    }
+
+    @Override
+    public void boxCreated(String identifier, int slot) {
+        this.changes += 1;
+    }
+
+    @Override
+    public void itemAdded(String identifier, int slot, MailItem item) {
+        this.changes += 1;
+    }
+
+    @Override
+    public void itemRemoved(String identifier, int slot, MailItem item) {
+        this.changes += 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Boxes are only taken on the scheduling thread, as is every other change to storage, and are detached from
+     * storage before their trip is handed to a worker.
+     */
+    @Override
+    public void boxDelivered(String identifier, int slot) {
+        this.changes += 1;
+        this.sorterParked = false;
+    }
+
+    /**
+     * Build the exception reporting the failure of a trip
+     * @param failure the cause of the failure
+     * @return the exception to throw
+     */
+    private static RuntimeException failed(Throwable failure) {
+        if (failure instanceof RuntimeException) {
+            return (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        return new IllegalStateException("Delivery bot failed", failure);
+    }
+
+    /**
+     * Find the tick the simulation finishes in, given that nothing changes after the current tick but bots
+     * finishing their trips
+     * @param tick the current tick
+     * @return the first tick, from the current one on, at the end of which the sorter and every bot are able to
+     * finish, or -1 if that will not happen without further steps
+     */
+    private long finishedIn(long tick) {
+        if (!this.sorter.canFinish()) {
+            return -1;
+        }
+        // A bot on a trip can only finish once storage is empty, which trips cannot change
+        boolean onTrips = false;
+        for (int b = 0; b < this.bots.length; b++) {
+            if (this.trips[b] != null) {
+                onTrips = true;
+            } else if (!this.bots[b].canFinish()) {
+                return -1;
+            }
+        }
+        if (onTrips && !this.storage.isEmpty()) {
+            return -1;
+        }
+        long finished = tick;
+        for (int b = 0; b < this.bots.length; b++) {
+            awaitTrip(b);
+            finished = Math.max(finished, this.tripEarliestEnd[b] - 1);
+        }
+        return finished;
+    }
+}
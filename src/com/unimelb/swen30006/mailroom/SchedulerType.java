@@ -0,0 +1,63 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+/**
+ * The ways a simulation can step its sorter and delivery bots through time. Every scheduler steps units in the
+ * same order within a tick, so all of them produce the same delivery statistics.
+ */
+public enum SchedulerType {
+
+    /** Steps the sorter and then every bot on every tick, in a single loop */
+    LOCKSTEP {
+        @Override
+        public long run(MailSorter sorter, DeliveryBot[] bots, MailStorage storage, SimulationClock clock) {
+            boolean finished = false;
+            long tick;
+            for (tick = 0; !finished; tick++) {
+                clock.advanceTo(tick);
+
+                // Update the sorter
+                sorter.step();
+
+                // Update all the delivery bots
+                boolean anyBotBlocking = false;
+                for (int b = 0; b < bots.length; b++) {
+                    bots[b].step();
+                    anyBotBlocking = !bots[b].canFinish() || anyBotBlocking;
+                }
+
+                // Check if we are finished
+                finished = sorter.canFinish() && !anyBotBlocking;
+            }
+            return tick;
+        }
+    },
+
+    /** Steps units only when they have something to do, see {@link EventScheduler} */
+    EVENTS {
+        @Override
+        public long run(MailSorter sorter, DeliveryBot[] bots, MailStorage storage, SimulationClock clock) {
+            return new EventScheduler(sorter, bots, storage, clock).run();
+        }
+    },
+
+    /** Hands delivery trips to a pool of worker threads, see {@link PhasedScheduler} */
+    THREADS {
+        @Override
+        public long run(MailSorter sorter, DeliveryBot[] bots, MailStorage storage, SimulationClock clock) {
+            return new PhasedScheduler(sorter, bots, storage, clock).run();
+        }
+    };
+
+    /**
+     * Run a simulation until the sorter and every bot can finish
+     * @param sorter the mail sorter, stepped first in every tick
+     * @param bots the delivery bots, stepped in index order after the sorter
+     * @param storage the storage the sorter and bots share, whose changes decide which units must step
+     * @param clock the clock to advance to each tick as it begins
+     * @return the number of ticks simulated
+     */
+    public abstract long run(MailSorter sorter, DeliveryBot[] bots, MailStorage storage, SimulationClock clock);
+}
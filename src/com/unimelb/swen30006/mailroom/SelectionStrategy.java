@@ -20,4 +20,75 @@ public interface SelectionStrategy {
      * @throws NoBoxReadyException if there is no suitable box ready to be delivered
      */
     String selectNextDelivery(StorageBox.Summary[] summaries) throws NoBoxReadyException;
+
+    /**
+     * Select the next box to deliver from summaries of slot keyed storage. Strategies should override this
+     * to answer with the slot directly, rather than through the box identifier.
+     * @param summaries the summaries of the storage boxes, each carrying its slot
+     * @return the slot of the storage box to deliver next
+     * @throws NoBoxReadyException if there is no suitable box ready to be delivered
+     */
+    default int selectNextSlot(StorageBox.Summary[] summaries) throws NoBoxReadyException {
+        String identifier = selectNextDelivery(summaries);
+        for (StorageBox.Summary summary : summaries) {
+            if (summary.identifier.equals(identifier)) {
+                return summary.slot;
+            }
+        }
+        throw new NoBoxReadyException();
+    }
+
+    /**
+     * Select the next box to deliver, reporting that no box is ready as a result rather than an exception.
+     * Strategies should override this, as it is used on every step of an idle delivery bot.
+     * @param summaries the summaries of the storage boxes
+     * @return the identifier of the storage box to deliver next, or null if no box is ready
+     */
+    default String trySelectNextDelivery(StorageBox.Summary[] summaries) {
+        try {
+            return selectNextDelivery(summaries);
+        } catch (NoBoxReadyException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Select the next box to deliver from summaries of slot keyed storage, reporting that no box is ready
+     * as a result rather than an exception.
+     * @param summaries the summaries of the storage boxes, each carrying its slot
+     * @return the slot of the storage box to deliver next, or SlotStorage.NO_SLOT if no box is ready
+     */
+    default int trySelectNextSlot(StorageBox.Summary[] summaries) {
+        try {
+            return selectNextSlot(summaries);
+        } catch (NoBoxReadyException e) {
+            return SlotStorage.NO_SLOT;
+        }
+    }
+
+    /**
+     * Tell the strategy how sorting is progressing, before it is first asked for a box, so it can send out
+     * partially filled boxes the moment no more mail will arrive.
+     * @param progress the progress of the sorter feeding storage
+     */
+    default void trackSorting(SortingProgress progress) {
+    }
+
+    /**
+     * Tell the strategy the clock of the simulation, before it is first asked for a box, so it can weigh how long
+     * mail has been waiting
+     * @param clock the clock of the simulation run
+     */
+    default void trackTime(SimulationClock clock) {
+    }
+
+    /**
+     * Whether this strategy must be asked on every step, even when storage has not changed since it last
+     * reported no box was ready. Strategies that decide purely on the summaries they are given should return
+     * false, allowing idle bots to wait until storage changes instead of polling.
+     * @return true if the strategy keeps state between calls that can change its decision
+     */
+    default boolean requiresPolling() {
+        return true;
+    }
 }
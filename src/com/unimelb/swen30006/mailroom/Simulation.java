@@ -6,12 +6,17 @@
 package com.unimelb.swen30006.mailroom;
 
 import com.unimelb.swen30006.mailroom.samples.*;
-import com.unimelb.swen30006.mailroom.strategies.*;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * A basic driver program to instantiate an instance of the MailSorter with an
@@ -19,98 +24,98 @@ import java.util.Arrays;
  */
 public class Simulation {
 
-	// Constants for our simulation mail generator
-	private static int MIN_FLOOR = -1;
-	private static int MAX_FLOOR = 20;
-	private static int NUM_MAIL = 1000;
-
-	// Constants for our mail storage unit
-	private static int MAX_BOXES = 5;
-	private static int MAX_MAIL_UNITS = 200;
-
-	// The floor on which the mailroom resides
-	private static int MAIL_ROOM_LEVEL = 10;
-
-	// The number of delivery bots
-	private static int NUM_BOTS = 1;
-
 	// The default number of simulations
 	private static int NUM_RUNS = 10;
-	
-	// Reset methods stored as static variables
-	private static Method SORT_RESET = null;
-	private static Method SELECT_RESET = null;
 
-	public static void main(String args[]) throws NoSuchMethodException, SecurityException, IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+	public static void main(String args[]) {
+		List<String> options = Arrays.asList(args);
 
 		// Extract what type of simulation to run
-		if (args.length > 0 && !args[0].equals("detailed")) {
-			if (args[0].equals("large_building") || args[0].equals("big_building")) {
-				Simulation.MIN_FLOOR = 1;
-				Simulation.MAX_FLOOR = 200;
-				Simulation.MAIL_ROOM_LEVEL = 2;
-				Simulation.NUM_BOTS = 20;
-				Simulation.MAX_BOXES = 50;
-				Simulation.MAX_MAIL_UNITS = 20;
-			} else if (args[0].equals("medium_building")) {
-				Simulation.MIN_FLOOR = 1;
-				Simulation.MAX_FLOOR = 50;
-				Simulation.MAIL_ROOM_LEVEL = 20;
-				Simulation.NUM_BOTS = 10;
-				Simulation.MAX_BOXES = 10;
-				Simulation.MAX_MAIL_UNITS = 30;
-			} else if (args[0].equals("small_building")) {
-				Simulation.MIN_FLOOR = 1;
-				Simulation.MAX_FLOOR = 10;
-				Simulation.MAIL_ROOM_LEVEL = 10;
-				Simulation.NUM_BOTS = 1;
-				Simulation.MAX_BOXES = 30;
-				Simulation.MAX_MAIL_UNITS = 40;
-			}
-		}
+		String building = (args.length > 0) ? args[0] : "detailed";
+		SimulationConfig config = SimulationConfig.forBuilding(building);
 		// Extract whether to print detailed runs or not
-		boolean printDetailed = (args.length > 0 && args[args.length - 1].equals("detailed"));
+		boolean printDetailed = options.contains("detailed");
 		// Extract whether to randomize
 		boolean randomSequence = !(args.length > 1 && args[1].equals("random"));
-
-		SortingStrategy sortStrategy;
-		SelectionStrategy selectionStrategy;
-		DeliveryStrategy deliveryStrategy;
-		// Create the appropriate strategies, some are the same, but for clarity
-		// strategies for each building type are listed out
-		if (args[0].equals("large_building") || args[0].equals("big_building")){
-			sortStrategy = new SortingStrategyTwo(MAX_BOXES, MAX_MAIL_UNITS);
-			selectionStrategy = new SelectionStrategyOne(MAX_BOXES, MAX_MAIL_UNITS, NUM_MAIL, NUM_BOTS);
-			deliveryStrategy = new DeliveryStrategyOne();
-			// Assign reset methods to static the subsequent static variables
-			SORT_RESET =  SortingStrategyTwo.class.getDeclaredMethod("reset");
-			SELECT_RESET = SelectionStrategyOne.class.getDeclaredMethod("reset");
+		// Extract whether to spread the runs over all available cores
+		boolean parallel = options.contains("parallel");
+		// Extract whether to use the event driven scheduler instead of stepping every unit on every tick
+		SchedulerType scheduler = options.contains("threads") ? SchedulerType.THREADS
+				: options.contains("events") ? SchedulerType.EVENTS : SchedulerType.LOCKSTEP;
+		// Extract whether to address storage boxes by integer slot instead of by name, or to use thread safe storage
+		StorageType storageType = options.contains("concurrent") ? StorageType.CONCURRENT
+				: options.contains("slots") ? StorageType.SLOTS : StorageType.SIMPLE;
+		// Extract whether to hold stored mail as packed primitives rather than as objects
+		boolean packedBoxes = options.contains("packed");
+		// Extract whether bots take ready boxes from a central dispatcher instead of each selecting boxes
+		boolean dispatch = options.contains("dispatch");
+		// Extract whether to report how long mail items of each priority take to deliver
+		boolean trackLatency = options.contains("latency");
+		// Extract a recorded trace to replay in every run, in place of generated mail
+		MailTrace trace = null;
+		for (String option : options) {
+			if (option.startsWith("trace=")) {
+				trace = openTrace(option.substring("trace=".length()));
+				config = new SimulationConfig(config.minFloor, config.maxFloor, (int) trace.numItems(),
+						config.maxBoxes, config.maxMailUnits, config.numBots, config.mailLevel, config.sortThroughput,
+						config.carryingCapacity);
+			}
 		}
-		else if (args[0].equals("medium_building")){
-			sortStrategy = new SortingStrategyTwo(MAX_BOXES, MAX_MAIL_UNITS);
-			selectionStrategy = new SelectionStrategyOne(MAX_BOXES, MAX_MAIL_UNITS, NUM_MAIL, NUM_BOTS);
-			deliveryStrategy = new DeliveryStrategyOne();
-			SORT_RESET =  SortingStrategyTwo.class.getDeclaredMethod("reset");
-			SELECT_RESET = SelectionStrategyOne.class.getDeclaredMethod("reset");
+		// Extract how many items the sorter may sort in each step, and how many boxes each bot may carry on a trip,
+		// exiting if either is not a number or leaves a building that cannot be simulated
+		try {
+			for (String option : options) {
+				if (option.startsWith("throughput=")) {
+					config = config.withSortThroughput(Integer.parseInt(option.substring("throughput=".length())));
+				}
+			}
+			for (String option : options) {
+				if (option.startsWith("carry=")) {
+					config = config.withCarryingCapacity(Integer.parseInt(option.substring("carry=".length())));
+				}
+			}
+			config.validate();
+		} catch (IllegalArgumentException e) {
+			System.out.println(e);
+			System.exit(0);
 		}
-		else if (args[0].equals("small_building")){
-			sortStrategy = new SortingStrategyOne(MAIL_ROOM_LEVEL, MAIL_ROOM_LEVEL, MAIL_ROOM_LEVEL);
-			selectionStrategy = new SelectionStrategyOne(MAX_BOXES, MAX_MAIL_UNITS, NUM_MAIL, NUM_BOTS);
-			deliveryStrategy = new DeliveryStrategyOne();
-			SORT_RESET = SortingStrategyOne.class.getDeclaredMethod("reset");
-			SELECT_RESET = SelectionStrategyOne.class.getDeclaredMethod("reset");
+
+		// Create the appropriate strategies for the building type, unless best fit sorting is asked for
+		StrategySet strategySet = options.contains("bestfit") ? StrategySet.THREE : StrategySet.forBuilding(building);
+		StrategyFactory strategies = strategySet.factoryFor(config);
+		// Send out the most urgent boxes first if asked
+		if (options.contains("urgency")) {
+			strategies = StrategySet.selectingByUrgency(strategies, config);
 		}
-		else{
-			sortStrategy = new SortingStrategyOne(MAIL_ROOM_LEVEL, MAIL_ROOM_LEVEL, MAIL_ROOM_LEVEL);
-			selectionStrategy = new SelectionStrategyOne(Simulation.MAX_BOXES, Simulation.MAX_MAIL_UNITS, Simulation.NUM_MAIL, Simulation.NUM_BOTS);
-			deliveryStrategy = new DeliveryStrategyOne();
-			SORT_RESET = SortingStrategyOne.class.getDeclaredMethod("reset");
-			SELECT_RESET = SelectionStrategyOne.class.getDeclaredMethod("reset");
+		// Plan each box's route as a single sweep if asked
+		if (options.contains("sweep")) {
+			strategies = StrategySet.deliveringBySweeps(strategies, config);
 		}
 
 		// Run the simulation with the appropriate arguments
-		runSimulation(MIN_FLOOR, MAX_FLOOR, NUM_MAIL, MAX_BOXES, MAX_MAIL_UNITS, NUM_BOTS, MAIL_ROOM_LEVEL, randomSequence,
-				selectionStrategy, deliveryStrategy, sortStrategy, printDetailed, NUM_RUNS);
+		runSimulation(config, randomSequence, trace, strategies, printDetailed, NUM_RUNS, parallel, scheduler,
+				storageType, packedBoxes, dispatch, trackLatency);
+	}
+
+	/**
+	 * Map a trace file for replay, exiting if it cannot be read
+	 * 
+	 * @param path
+	 *            the trace file
+	 * @return the mapped trace
+	 */
+	private static MailTrace openTrace(String path) {
+		try {
+			MailTrace trace = MailTrace.open(Paths.get(path));
+			if (trace.numItems() > Integer.MAX_VALUE) {
+				throw new IOException(path + " holds more items than a simulation can count");
+			}
+			return trace;
+		} catch (IOException e) {
+			System.out.println(e);
+			System.exit(0);
+			return null;
+		}
 	}
 
 	/**
@@ -118,119 +123,110 @@ public class Simulation {
 	 * Will handle running the multiple simulation runs and averaging the
 	 * results.
 	 * 
-	 * @param minFloor
-	 *            the minimum floor on the building
-	 * @param maxFloor
-	 *            the maxium floor on the building
-	 * @param numMail
-	 *            the number of mail items to simulation
-	 * @param maxBoxes
-	 *            the number of boxes allowed in the storage unit
-	 * @param maxMailUnits
-	 *            the size of each of the boxes in the storage unit (in mail
-	 *            units)
-	 * @param numBots
-	 *            the number of delivery bots servicing the building
-	 * @param mailLevel
-	 *            the level of the building that the mail room operates on
+	 * @param config
+	 *            the building and mail room to simulate
 	 * @param predictable
 	 *            whether to use predictable (fixed seed) mail generation or
 	 *            not. Setting this value to false will use random seeds for
 	 *            each run. Setting it to true will result in the same values
 	 *            for each run.
-	 * @param selectionStrategy
-	 *            the selection strategy to use for this simulation
-	 * @param deliveryStrategy
-	 *            the delivery strategy to use for this simulation
-	 * @param sortingStrategy
-	 *            the sorting strategy to use for this simulation
+	 * @param replay
+	 *            the mail to replay in every run, or null to generate mail
+	 *            for each run
+	 * @param strategies
+	 *            the factory providing fresh strategies for each run
 	 * @param printDetailed
 	 *            whether or not you want the detailed output for each run. If
 	 *            true the console output will be very verbose.
 	 * @param numRuns
 	 *            The number of simulation runs for this experiment. Will
 	 *            average the results over this many runs.
-	 * @throws InvocationTargetException 
-	 * @throws IllegalArgumentException 
-	 * @throws IllegalAccessException 
+	 * @param parallel
+	 *            whether to execute the runs concurrently on a fork-join pool.
+	 *            Results are combined in run order, so the output is identical
+	 *            to a serial execution with the same seeds.
+	 * @param scheduler
+	 *            how to step each simulation through time, such as the event
+	 *            driven scheduler which skips idle bots rather than the fixed
+	 *            tick loop. All produce the same statistics.
+	 * @param storageType
+	 *            the kind of storage to use, such as slot keyed storage
+	 *            which addresses boxes by integer slot rather than by name
+	 * @param packedBoxes
+	 *            whether storage boxes hold their mail as packed longs
+	 *            rather than as MailItem objects
+	 * @param dispatch
+	 *            whether bots take ready boxes from a central dispatcher
+	 *            rather than each asking the selection strategy
+	 * @param trackLatency
+	 *            whether to report the time mail items of each priority
+	 *            spend in each stage of delivery
 	 */
-	private static void runSimulation(int minFloor, int maxFloor, int numMail, int maxBoxes, int maxMailUnits,
-			int numBots, int mailLevel, boolean predictable, SelectionStrategy selectionStrategy,
-			DeliveryStrategy deliveryStrategy, SortingStrategy sortingStrategy, boolean printDetailed, int numRuns) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException {
-
-		// Setup variables for the simulation
-		double totalTime = 0;
-		double totalFloors = 0;
-		double numDeliveries = 0;
+	private static void runSimulation(final SimulationConfig config, boolean predictable, MailSourceFactory replay,
+			final StrategyFactory strategies, boolean printDetailed, int numRuns, boolean parallel,
+			final SchedulerType scheduler, final StorageType storageType, final boolean packedBoxes,
+			final boolean dispatch, boolean trackLatency) {
 
-		// Print detailed header if required
-		if (printDetailed) {
-			System.out.println("==========    DETAILED RUNS    ==========");
+		// Generate the mail for each seed once, to be replayed by every run using that seed, drawing the seeds up
+		// front so runs are independent of execution order
+		final MailSourceFactory[] mail = new MailSourceFactory[numRuns];
+		if (replay != null) {
+			Arrays.fill(mail, replay);
+		} else {
+			System.arraycopy(generateMail(config, drawSeeds(numRuns, predictable)), 0, mail, 0, numRuns);
 		}
 
-		// Run the required number of simulations
+		// Each run records its deliveries individually only when they are to be printed
+		final List<List<DeliveryBot.DeliveryStatistic>> deliveries = new ArrayList<List<DeliveryBot.DeliveryStatistic>>();
 		for (int i = 0; i < numRuns; i++) {
-			// If present, call stored reset methods
-			if (SELECT_RESET != null){
-				SELECT_RESET.invoke(selectionStrategy);
-			}
-			if (SORT_RESET != null){
-				SORT_RESET.invoke(sortingStrategy);
-			}
-
-			// Setup Mail Generator
-			MailItem.MailPriority[] priorities = MailItem.MailPriority.values();
-			MailItem.MailType[] types = MailItem.MailType.values();
-			MailSource generator = new SimpleMailGenerator(minFloor, maxFloor, priorities, types, numMail, predictable);
-
-			// Setup storage
-			MailStorage storage = new SimpleMailStorage(maxBoxes, maxMailUnits);
-
-			// Setup MailSorter
-			MailSorter sorter = new MailSorter(generator, storage, sortingStrategy);
-
-			// Create the deliver bots
-			DeliveryBot bots[] = new DeliveryBot[numBots];
-			for (int k = 0; k < numBots; k++) {
-				bots[k] = new DeliveryBot(selectionStrategy, deliveryStrategy, storage, mailLevel);
-			}
+			deliveries.add(printDetailed ? new ArrayList<DeliveryBot.DeliveryStatistic>() : null);
+		}
+		// Likewise each run tracks the latency of its items only when it is to be reported
+		final LatencyTracker[] latencies = new LatencyTracker[numRuns];
+		for (int i = 0; i < numRuns; i++) {
+			latencies[i] = trackLatency ? new LatencyTracker() : null;
+		}
 
-			// Run the simulation
-			boolean finished = false;
-			while (!finished) {
-				// Update the sorter
-				sorter.step();
-				
-				// Update all the delivery bots
-				boolean anyBotBlocking = false;
-				for (int b = 0; b < numBots; b++) {
-					bots[b].step();
-					anyBotBlocking = !bots[b].canFinish() || anyBotBlocking;
+		// Execute the runs, either one after another or spread over all cores
+		StatisticsAggregator[] results = new StatisticsAggregator[numRuns];
+		if (parallel) {
+			ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+			try {
+				List<ForkJoinTask<StatisticsAggregator>> tasks = new ArrayList<ForkJoinTask<StatisticsAggregator>>();
+				for (int i = 0; i < numRuns; i++) {
+					final MailSourceFactory runMail = mail[i];
+					final List<DeliveryBot.DeliveryStatistic> record = deliveries.get(i);
+					final LatencyTracker latency = latencies[i];
+					tasks.add(pool.submit(
+							() -> runOnce(config, runMail, strategies, scheduler, storageType, packedBoxes, dispatch,
+									record, latency)));
 				}
-
-				// Check if we are finished
-				finished = sorter.canFinish() && !anyBotBlocking;
+				for (int i = 0; i < numRuns; i++) {
+					results[i] = tasks.get(i).join();
+				}
+			} finally {
+				pool.shutdown();
 			}
-
-			// Retrieve statistics
-			ArrayList<DeliveryBot.DeliveryStatistic> stats = new ArrayList<DeliveryBot.DeliveryStatistic>();
-			for (int j = 0; j < numBots; j++) {
-				DeliveryBot.DeliveryStatistic[] botStats = bots[j].retrieveStatistics();
-				stats.addAll(Arrays.asList(botStats));
+		} else {
+			for (int i = 0; i < numRuns; i++) {
+				results[i] = runOnce(config, mail[i], strategies, scheduler, storageType, packedBoxes, dispatch,
+						deliveries.get(i), latencies[i]);
 			}
+		}
 
-			// Calculate averages and totals
-			for (DeliveryBot.DeliveryStatistic stat : stats) {
-				totalTime += stat.timeTaken;
-				totalFloors += stat.numFloors;
-			}
+		// Print detailed header if required
+		if (printDetailed) {
+			System.out.println("==========    DETAILED RUNS    ==========");
+		}
 
-			// Calculate statistics
-			numDeliveries += stats.size();
+		// Merge the runs in order, so the results are identical however they were executed
+		StatisticsAggregator total = new StatisticsAggregator();
+		for (int i = 0; i < numRuns; i++) {
+			total.merge(results[i]);
 			if (printDetailed) {
 				System.out.println("======   Completed Run Number " + i + "    ======");
 
-				for (DeliveryBot.DeliveryStatistic stat : stats) {
+				for (DeliveryBot.DeliveryStatistic stat : deliveries.get(i)) {
 					System.out.println(stat);
 				}
 				System.out.println("=========================================");
@@ -238,21 +234,191 @@ public class Simulation {
 		}
 
 		// Average the results
-		totalFloors = totalFloors / (double) numRuns;
-		totalTime = totalTime / (double) numRuns;
-		numDeliveries = numDeliveries / (double) numRuns;
+		double totalFloors = total.numFloors().sum() / (double) numRuns;
+		double totalTime = total.timeTaken().sum() / (double) numRuns;
+		double numDeliveries = total.numDeliveries() / (double) numRuns;
 
 		// Print the results
 		System.out.println("========== SIMULATION COMPLETE ==========");
 		System.out.println("");
-		System.out.println("Delivered: " + numMail + " packages");
+		System.out.println("Delivered: " + config.numMail + " packages");
 		System.out.println("Total Delivery Runs: " + numDeliveries);
 		System.out.println("Total Time Taken: " + totalTime);
-		System.out.println("Total Delivery Bots: " + numBots);
-		System.out.println("Average Time Per Bots: " + totalTime / (double) numBots);
+		System.out.println("Total Delivery Bots: " + config.numBots);
+		System.out.println("Average Time Per Bots: " + totalTime / (double) config.numBots);
 		System.out.println("Average Num Floors: " + totalFloors / (double) numDeliveries);
-		System.out.println("Average Num Packages: " + numMail / (double) numDeliveries);
+		System.out.println("Average Num Packages: " + config.numMail / (double) numDeliveries);
+		System.out.println("Delivery Run Time p50/p95/p99: " + percentiles(total.timeTaken()));
+		System.out.println("Delivery Run Floors p50/p95/p99: " + percentiles(total.numFloors()));
+		System.out.println("Delivery Run Packages p50/p95/p99: " + percentiles(total.packagesDelivered()));
+		System.out.println("");
+
+		if (trackLatency) {
+			LatencyTracker latency = new LatencyTracker();
+			for (LatencyTracker run : latencies) {
+				latency.merge(run);
+			}
+			printLatency(latency);
+		}
+
+	}
+
+	/**
+	 * Print the time mail items spent in each stage of delivery, by priority
+	 * 
+	 * @param latency
+	 *            the latency of every item across all runs
+	 */
+	private static void printLatency(LatencyTracker latency) {
+		System.out.println("========== ITEM LATENCY (TICKS) ==========");
+		System.out.println("Mean and p50/p95/p99 of each stage, by priority");
 		System.out.println("");
+		MailItem.MailPriority[] priorities = MailItem.MailPriority.values();
+		for (int p = priorities.length - 1; p >= 0; p--) {
+			System.out.println(priorities[p] + " (" + latency.statistic(LatencyTracker.Stage.EndToEnd, priorities[p]).count()
+					+ " items)");
+			for (LatencyTracker.Stage stage : LatencyTracker.Stage.values()) {
+				StreamingStatistic statistic = latency.statistic(stage, priorities[p]);
+				System.out.println("  " + stage + ": " + String.format("%.1f", statistic.mean()) + ", "
+						+ percentiles(statistic));
+			}
+		}
+		System.out.println("");
+	}
+
+	/**
+	 * Format the median and tail percentiles of a statistic
+	 * 
+	 * @param statistic
+	 *            the statistic
+	 * @return its 50th, 95th and 99th percentiles
+	 */
+	private static String percentiles(StreamingStatistic statistic) {
+		return statistic.percentile(50) + " / " + statistic.percentile(95) + " / " + statistic.percentile(99);
+	}
+
+	/**
+	 * Draw the mail generator seed for each of a number of runs
+	 * 
+	 * @param numRuns
+	 *            the number of runs
+	 * @param predictable
+	 *            whether every run should use the fixed seed
+	 * @return a seed for each run
+	 */
+	public static long[] drawSeeds(int numRuns, boolean predictable) {
+		long[] seeds = new long[numRuns];
+		Random seedSource = new Random();
+		for (int i = 0; i < numRuns; i++) {
+			seeds[i] = predictable ? SimpleMailGenerator.fixedSeed() : seedSource.nextLong();
+		}
+		return seeds;
+	}
 
+	/**
+	 * Generate the mail for a number of runs, generating each distinct seed only once
+	 * 
+	 * @param config
+	 *            the building the mail is addressed to
+	 * @param seeds
+	 *            the seed of each run
+	 * @return the mail for each run, shared between runs with the same seed
+	 */
+	public static MailDataset[] generateMail(SimulationConfig config, long[] seeds) {
+		MailDataset[] mail = new MailDataset[seeds.length];
+		Map<Long, MailDataset> bySeed = new HashMap<Long, MailDataset>();
+		for (int i = 0; i < seeds.length; i++) {
+			mail[i] = bySeed.get(seeds[i]);
+			if (mail[i] == null) {
+				mail[i] = MailDataset.generate(config.minFloor, config.maxFloor, config.numMail, seeds[i]);
+				bySeed.put(seeds[i], mail[i]);
+			}
+		}
+		return mail;
+	}
+
+	/**
+	 * Perform a single simulation run with its own storage and strategies, reading its mail through a fresh
+	 * cursor. Runs share nothing but read only mail, so any number may execute concurrently.
+	 * 
+	 * @param config
+	 *            the building and mail room to simulate
+	 * @param mail
+	 *            the mail to deliver in this run
+	 * @param strategies
+	 *            the factory providing the strategies for this run
+	 * @param scheduler
+	 *            how to step the simulation through time
+	 * @param storageType
+	 *            the kind of storage to use
+	 * @param packedBoxes
+	 *            whether storage boxes hold their mail as packed longs
+	 * @param dispatch
+	 *            whether bots take ready boxes from a {@link BoxDispatcher}
+	 * @param deliveries
+	 *            a list to add every delivery made in this run to, in bot order, or null to only aggregate them
+	 * @param latency
+	 *            a tracker to record the latency of every mail item in, or null to not track latency
+	 * @return the merged statistics of every bot
+	 */
+	public static StatisticsAggregator runOnce(SimulationConfig config, MailSourceFactory mail, StrategyFactory strategies,
+			SchedulerType scheduler, StorageType storageType, boolean packedBoxes, boolean dispatch,
+			List<DeliveryBot.DeliveryStatistic> deliveries, LatencyTracker latency) {
+		SimulationClock clock = new SimulationClock();
+
+		// Setup Mail Source
+		MailSource generator = mail.createMailSource(clock);
+
+		// Setup storage
+		MailStorage storage = storageType.create(config, packedBoxes);
+
+		// Setup MailSorter
+		MailSorter sorter = new MailSorter(generator, storage, strategies.createSortingStrategy(), config.sortThroughput);
+		LatencyTracker[] trackers = new LatencyTracker[config.numBots + 1];
+		if (latency != null) {
+			trackers[0] = new LatencyTracker();
+			sorter.trackLatency(trackers[0], clock);
+		}
+
+		// Create the deliver bots, sharing one selection strategy or one dispatcher
+		SelectionStrategy selectionStrategy = dispatch ? null : strategies.createSelectionStrategy();
+		if (selectionStrategy != null) {
+			selectionStrategy.trackSorting(sorter);
+			selectionStrategy.trackTime(clock);
+		}
+		BoxDispatcher dispatcher = dispatch ? new BoxDispatcher(storage, sorter, config.maxBoxes) : null;
+		int numBots = config.numBots;
+		DeliveryBot bots[] = new DeliveryBot[numBots];
+		for (int k = 0; k < numBots; k++) {
+			if (dispatch) {
+				bots[k] = new DeliveryBot(dispatcher, strategies.createDeliveryStrategy(), storage, config.mailLevel,
+						deliveries != null);
+			} else {
+				bots[k] = new DeliveryBot(selectionStrategy, strategies.createDeliveryStrategy(), storage,
+						config.mailLevel, deliveries != null);
+			}
+			bots[k].setCarryingCapacity(config.carryingCapacity);
+			if (latency != null) {
+				trackers[k + 1] = new LatencyTracker();
+				bots[k].trackLatency(trackers[k + 1], clock);
+			}
+		}
+		// Run the simulation
+		scheduler.run(sorter, bots, storage, clock);
+
+		// Retrieve statistics
+		StatisticsAggregator statistics = new StatisticsAggregator();
+		for (int j = 0; j < numBots; j++) {
+			statistics.merge(bots[j].retrieveAggregate());
+			if (deliveries != null) {
+				deliveries.addAll(Arrays.asList(bots[j].retrieveStatistics()));
+			}
+		}
+		if (latency != null) {
+			for (LatencyTracker tracker : trackers) {
+				latency.merge(tracker);
+			}
+		}
+		return statistics;
 	}
-}
\ No newline at end of file
+}
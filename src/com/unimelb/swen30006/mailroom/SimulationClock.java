@@ -0,0 +1,33 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+/**
+ * The simulated time of a single simulation run, counted in ticks. The scheduler advances the clock at the start
+ * of every tick, and the mail source, sorter and bots read it to time individual mail items.
+ */
+public class SimulationClock {
+
+    /** The current tick */
+    private long tick;
+
+    /**
+     * Retrieve the current tick
+     * @return the tick the simulation is currently in
+     */
+    public long now() {
+        return this.tick;
+    }
+
+    /**
+     * Move the clock forward to a later tick
+     * @param tick the tick the simulation is now in
+     */
+    public void advanceTo(long tick) {
+        if (tick < this.tick) {
+            throw new IllegalArgumentException("Cannot move the clock back from " + this.tick + " to " + tick);
+        }
+        this.tick = tick;
+    }
+}
@@ -0,0 +1,157 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+import com.unimelb.swen30006.mailroom.samples.SimpleMailGenerator;
+
+/**
+ * The parameters describing a building and its mail room for a simulation. This class is immutable,
+ * so a single configuration can be shared by any number of concurrent runs.
+ */
+public class SimulationConfig {
+
+    /** The lowest and highest floors mail is addressed to */
+    public final int minFloor;
+    public final int maxFloor;
+    /** The number of mail items to simulate */
+    public final int numMail;
+    /** The number of boxes allowed in the storage unit */
+    public final int maxBoxes;
+    /** The size of each of the boxes in the storage unit (in mail units) */
+    public final int maxMailUnits;
+    /** The number of delivery bots servicing the building */
+    public final int numBots;
+    /** The floor on which the mail room resides */
+    public final int mailLevel;
+    /** The largest number of items the sorter sorts in a single step */
+    public final int sortThroughput;
+    /** The most storage boxes a delivery bot carries on a single trip */
+    public final int carryingCapacity;
+
+    /**
+     * Create a simulation configuration
+     * @param minFloor the minimum floor on the building
+     * @param maxFloor the maximum floor on the building
+     * @param numMail the number of mail items to simulate
+     * @param maxBoxes the number of boxes allowed in the storage unit
+     * @param maxMailUnits the size of each of the boxes in the storage unit (in mail units)
+     * @param numBots the number of delivery bots servicing the building
+     * @param mailLevel the level of the building that the mail room operates on
+     */
+    public SimulationConfig(int minFloor, int maxFloor, int numMail, int maxBoxes, int maxMailUnits,
+                            int numBots, int mailLevel) {
+        this(minFloor, maxFloor, numMail, maxBoxes, maxMailUnits, numBots, mailLevel, 1);
+    }
+
+    /**
+     * Create a simulation configuration with a sorter that sorts several items in each step
+     * @param minFloor the minimum floor on the building
+     * @param maxFloor the maximum floor on the building
+     * @param numMail the number of mail items to simulate
+     * @param maxBoxes the number of boxes allowed in the storage unit
+     * @param maxMailUnits the size of each of the boxes in the storage unit (in mail units)
+     * @param numBots the number of delivery bots servicing the building
+     * @param mailLevel the level of the building that the mail room operates on
+     * @param sortThroughput the largest number of items the sorter sorts in a single step
+     */
+    public SimulationConfig(int minFloor, int maxFloor, int numMail, int maxBoxes, int maxMailUnits,
+                            int numBots, int mailLevel, int sortThroughput) {
+        this(minFloor, maxFloor, numMail, maxBoxes, maxMailUnits, numBots, mailLevel, sortThroughput, 1);
+    }
+
+    /**
+     * Create a simulation configuration with bots that carry several boxes on each trip
+     * @param minFloor the minimum floor on the building
+     * @param maxFloor the maximum floor on the building
+     * @param numMail the number of mail items to simulate
+     * @param maxBoxes the number of boxes allowed in the storage unit
+     * @param maxMailUnits the size of each of the boxes in the storage unit (in mail units)
+     * @param numBots the number of delivery bots servicing the building
+     * @param mailLevel the level of the building that the mail room operates on
+     * @param sortThroughput the largest number of items the sorter sorts in a single step
+     * @param carryingCapacity the most storage boxes a delivery bot carries on a single trip
+     */
+    public SimulationConfig(int minFloor, int maxFloor, int numMail, int maxBoxes, int maxMailUnits,
+                            int numBots, int mailLevel, int sortThroughput, int carryingCapacity) {
+        this.minFloor = minFloor;
+        this.maxFloor = maxFloor;
+        this.numMail = numMail;
+        this.maxBoxes = maxBoxes;
+        this.maxMailUnits = maxMailUnits;
+        this.numBots = numBots;
+        this.mailLevel = mailLevel;
+        this.sortThroughput = sortThroughput;
+        this.carryingCapacity = carryingCapacity;
+    }
+
+    /**
+     * Create a copy of this configuration with a different sorter throughput
+     * @param sortThroughput the largest number of items the sorter sorts in a single step
+     * @return the new configuration
+     */
+    public SimulationConfig withSortThroughput(int sortThroughput) {
+        return new SimulationConfig(minFloor, maxFloor, numMail, maxBoxes, maxMailUnits, numBots, mailLevel,
+                sortThroughput, carryingCapacity);
+    }
+
+    /**
+     * Create a copy of this configuration with a different carrying capacity for the bots
+     * @param carryingCapacity the most storage boxes a delivery bot carries on a single trip
+     * @return the new configuration
+     */
+    public SimulationConfig withCarryingCapacity(int carryingCapacity) {
+        return new SimulationConfig(minFloor, maxFloor, numMail, maxBoxes, maxMailUnits, numBots, mailLevel,
+                sortThroughput, carryingCapacity);
+    }
+
+    /**
+     * Retrieve the configuration of one of the named building profiles. Unknown names, including
+     * "detailed", give the default building.
+     * @param building the name of the building profile
+     * @return the configuration for that building
+     */
+    public static SimulationConfig forBuilding(String building) {
+        if (building.equals("large_building") || building.equals("big_building")) {
+            return new SimulationConfig(1, 200, 1000, 50, 20, 20, 2);
+        } else if (building.equals("medium_building")) {
+            return new SimulationConfig(1, 50, 1000, 10, 30, 10, 20);
+        } else if (building.equals("small_building")) {
+            return new SimulationConfig(1, 10, 1000, 30, 40, 1, 10);
+        }
+        return new SimulationConfig(-1, 20, 1000, 5, 200, 1, 10);
+    }
+
+    /**
+     * Check that a simulation of this configuration is able to complete
+     * @throws IllegalArgumentException describing the first problem found
+     */
+    public void validate() {
+        if (minFloor > maxFloor) {
+            throw new IllegalArgumentException("minFloor " + minFloor + " is above maxFloor " + maxFloor);
+        }
+        if (numMail < 0 || maxBoxes < 1 || numBots < 1 || sortThroughput < 1 || carryingCapacity < 1) {
+            throw new IllegalArgumentException(
+                    "numMail, maxBoxes, numBots, sortThroughput and carryingCapacity must be positive");
+        }
+        if (maxMailUnits < SimpleMailGenerator.maxItemSize()) {
+            throw new IllegalArgumentException("maxMailUnits " + maxMailUnits + " cannot hold the largest item of "
+                    + SimpleMailGenerator.maxItemSize() + " units");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SimulationConfig{" +
+                "minFloor=" + minFloor +
+                ", maxFloor=" + maxFloor +
+                ", numMail=" + numMail +
+                ", maxBoxes=" + maxBoxes +
+                ", maxMailUnits=" + maxMailUnits +
+                ", numBots=" + numBots +
+                ", mailLevel=" + mailLevel +
+                ", sortThroughput=" + sortThroughput +
+                ", carryingCapacity=" + carryingCapacity +
+                '}';
+    }
+}
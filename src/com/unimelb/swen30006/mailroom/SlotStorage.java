@@ -0,0 +1,89 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+import com.unimelb.swen30006.mailroom.exceptions.MailOverflowException;
+import com.unimelb.swen30006.mailroom.exceptions.UnknownIdentifierException;
+
+/**
+ * A mail storage unit that addresses its boxes by integer slot rather than by name. Slots are
+ * chosen by the storage unit when a box is created, and are reused once the box is delivered.
+ * Summaries produced by a slot storage unit carry the slot of each box.
+ */
+public interface SlotStorage extends MailStorage {
+
+    /** The slot of a summary that did not come from slot keyed storage */
+    int NO_SLOT = -1;
+
+    /**
+     * Create a storage box in a free slot
+     * @return the slot the new box occupies
+     * @throws MailOverflowException if there are no free slots remaining
+     */
+    int createSlot() throws MailOverflowException;
+
+    /**
+     * Retrieve the storage box held in a slot
+     * @param slot the slot of the box
+     * @return the box in that slot
+     * @throws UnknownIdentifierException if the slot does not hold a box
+     */
+    StorageBox retrieveSlot(int slot) throws UnknownIdentifierException;
+
+    /**
+     * Retrieve the storage box held in a slot for delivery by a delivery bot, freeing the slot
+     * @param slot the slot of the box
+     * @return the box that was in that slot
+     * @throws UnknownIdentifierException if the slot does not hold a box
+     */
+    StorageBox deliverSlot(int slot) throws UnknownIdentifierException;
+
+    /**
+     * Find the slot holding the box with the given identifier
+     * @param identifier the identifier of the box
+     * @return the slot of the box, or NO_SLOT if there is no box with that identifier
+     */
+    int slotOf(String identifier);
+
+    /**
+     * Create a storage box in a free slot, reporting a lack of space as a result rather than an exception
+     * @return the slot the new box occupies, or NO_SLOT if there are no free slots remaining
+     */
+    default int tryCreateSlot() {
+        if (isFull()) {
+            return NO_SLOT;
+        }
+        try {
+            return createSlot();
+        } catch (MailOverflowException e) {
+            return NO_SLOT;
+        }
+    }
+
+    /**
+     * Find the storage box held in a slot, without throwing if there is none
+     * @param slot the slot of the box
+     * @return the box in that slot, or null if the slot does not hold a box
+     */
+    default StorageBox findSlot(int slot) {
+        try {
+            return retrieveSlot(slot);
+        } catch (UnknownIdentifierException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Retrieve the storage box held in a slot for delivery, without throwing if there is none
+     * @param slot the slot of the box
+     * @return the box that was in that slot, or null if the slot does not hold a box
+     */
+    default StorageBox tryDeliverSlot(int slot) {
+        try {
+            return deliverSlot(slot);
+        } catch (UnknownIdentifierException e) {
+            return null;
+        }
+    }
+}
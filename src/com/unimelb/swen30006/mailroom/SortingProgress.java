@@ -0,0 +1,19 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+/**
+ * The progress of a mail sorter, published so that delivery can react the moment sorting ends rather than
+ * guessing from the passage of time.
+ */
+public interface SortingProgress {
+
+    /**
+     * Check whether every item from the mail source has been placed into storage, so no box will receive more
+     * mail. Once drained, a sorter stays drained. It becomes drained as it stores its last item, so anyone
+     * waiting on storage events sees the change.
+     * @return true if the source is exhausted and nothing is waiting to be sorted
+     */
+    boolean isDrained();
+}
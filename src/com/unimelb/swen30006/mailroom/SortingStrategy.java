@@ -25,5 +25,94 @@ public interface SortingStrategy {
      * @throws MailOverflowException if there are no spaces remaining for new boxes
      */
      String assignStorage(MailItem item, MailStorage storage) throws MailOverflowException;
-}
 
+    /**
+     * Assign a slot for a mail item in slot keyed storage. Strategies should override this to work with
+     * slots directly, rather than through box identifiers.
+     * @param item the item being sorted
+     * @param storage the slot keyed storage system in use
+     * @return the slot of the assigned storage box
+     * @throws MailOverflowException if there are no spaces remaining for new boxes
+     */
+    default int assignSlot(MailItem item, SlotStorage storage) throws MailOverflowException {
+        return storage.slotOf(assignStorage(item, storage));
+    }
+
+    /**
+     * Assign an identifier for a mail item, reporting that storage has no room as a result rather than an
+     * exception. Strategies should override this, as it is used every time the sorting machine sorts an item.
+     * @param item the item being sorted
+     * @param storage the storage system in use
+     * @return the identifier of the assigned storage box, or null if there are no spaces remaining for new boxes
+     */
+    default String tryAssignStorage(MailItem item, MailStorage storage) {
+        try {
+            return assignStorage(item, storage);
+        } catch (MailOverflowException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Assign a slot for a mail item in slot keyed storage, reporting that storage has no room as a result
+     * rather than an exception.
+     * @param item the item being sorted
+     * @param storage the slot keyed storage system in use
+     * @return the slot of the assigned storage box, or SlotStorage.NO_SLOT if there are no spaces remaining
+     */
+    default int tryAssignSlot(MailItem item, SlotStorage storage) {
+        try {
+            return assignSlot(item, storage);
+        } catch (MailOverflowException e) {
+            return SlotStorage.NO_SLOT;
+        }
+    }
+
+    /**
+     * Whether the strategy must be asked again on every step even when storage has not changed, because it keeps
+     * state of its own across failed attempts. Strategies that give the same answer for the same storage should
+     * return false, so a sorter waiting on a full storage unit can sleep until a box is delivered.
+     * @return true if the sorter must keep trying to sort while it waits
+     */
+    default boolean requiresPolling() {
+        return true;
+    }
+
+    /**
+     * Assign boxes for a run of mail items that will be stored in order, from a single look at storage. Assigns as
+     * many leading items as it can while storage is unchanged, so that storing them in order succeeds, and stops
+     * early if an item has no room or needs storage to be looked at again. Strategies should override this, as the
+     * default assigns only the first item.
+     * @param items the items being sorted
+     * @param offset the index of the first item to assign
+     * @param length the number of items to assign
+     * @param storage the storage system in use
+     * @param identifiers where to place the identifier assigned to each item, at the same index as the item
+     * @return the number of leading items assigned, zero if the first item has no room
+     */
+    default int assignBatch(MailItem[] items, int offset, int length, MailStorage storage, String[] identifiers) {
+        if (length == 0) {
+            return 0;
+        }
+        identifiers[offset] = tryAssignStorage(items[offset], storage);
+        return (identifiers[offset] == null) ? 0 : 1;
+    }
+
+    /**
+     * Assign slots for a run of mail items that will be stored in order in slot keyed storage, as for
+     * {@link #assignBatch(MailItem[], int, int, MailStorage, String[])}.
+     * @param items the items being sorted
+     * @param offset the index of the first item to assign
+     * @param length the number of items to assign
+     * @param storage the slot keyed storage system in use
+     * @param slots where to place the slot assigned to each item, at the same index as the item
+     * @return the number of leading items assigned, zero if the first item has no room
+     */
+    default int assignSlotBatch(MailItem[] items, int offset, int length, SlotStorage storage, int[] slots) {
+        if (length == 0) {
+            return 0;
+        }
+        slots[offset] = tryAssignSlot(items[offset], storage);
+        return (slots[offset] == SlotStorage.NO_SLOT) ? 0 : 1;
+    }
+}
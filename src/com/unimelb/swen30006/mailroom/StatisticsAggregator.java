@@ -0,0 +1,79 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+/**
+ * Aggregates delivery runs as they are made, keeping {@link StreamingStatistic}s of the time taken, floors
+ * travelled and packages delivered by each run rather than a record of every run. Each delivery bot feeds its
+ * own aggregator, and aggregators from different bots, runs or threads are merged once they are finished.
+ * An aggregator is not thread safe, so should only be fed by one thread at a time.
+ */
+public class StatisticsAggregator {
+
+    /** The time taken by each delivery run */
+    private final StreamingStatistic timeTaken;
+    /** The floors travelled by each delivery run */
+    private final StreamingStatistic numFloors;
+    /** The packages delivered by each delivery run */
+    private final StreamingStatistic packagesDelivered;
+
+    /**
+     * Create an aggregator with no delivery runs
+     */
+    public StatisticsAggregator() {
+        this.timeTaken = new StreamingStatistic();
+        this.numFloors = new StreamingStatistic();
+        this.packagesDelivered = new StreamingStatistic();
+    }
+
+    /**
+     * Record a completed delivery run
+     * @param delivered the number of packages delivered
+     * @param time the time taken to deliver them and return to the mail room
+     * @param floors the number of floors travelled
+     */
+    public void record(int delivered, int time, int floors) {
+        this.timeTaken.record(time);
+        this.numFloors.record(floors);
+        this.packagesDelivered.record(delivered);
+    }
+
+    /**
+     * Add every delivery run of another aggregator to this one
+     * @param other the aggregator to merge, which is left unchanged
+     */
+    public void merge(StatisticsAggregator other) {
+        this.timeTaken.merge(other.timeTaken);
+        this.numFloors.merge(other.numFloors);
+        this.packagesDelivered.merge(other.packagesDelivered);
+    }
+
+    /**
+     * @return the number of delivery runs recorded
+     */
+    public long numDeliveries() {
+        return this.timeTaken.count();
+    }
+
+    /**
+     * @return the statistics of the time taken by each delivery run
+     */
+    public StreamingStatistic timeTaken() {
+        return this.timeTaken;
+    }
+
+    /**
+     * @return the statistics of the floors travelled by each delivery run
+     */
+    public StreamingStatistic numFloors() {
+        return this.numFloors;
+    }
+
+    /**
+     * @return the statistics of the packages delivered by each delivery run
+     */
+    public StreamingStatistic packagesDelivered() {
+        return this.packagesDelivered;
+    }
+}
@@ -6,29 +6,52 @@ package com.unimelb.swen30006.mailroom;
 
 import com.unimelb.swen30006.mailroom.exceptions.*;
 
-import java.util.*;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * A storage box to be used by the mail storage system, created with a fixed length and methods to add
  * and remove MailItems from the storage box. Will throw a MailOverflowException if attempted to fit above the
  * limit. Also supports querying if a package will fit in the box.
+ *
+ * <p>
+ * This class keeps the counts, summary and change reports every box shares, while subclasses decide how the mail
+ * itself is held: as MailItem objects grouped by floor in an {@link ObjectStorageBox}, or as packed longs in a
+ * {@link PackedStorageBox}. Subclasses report each item they store or remove through {@link #added} and
+ * {@link #removed}.
  */
-public class StorageBox {
-    /** The mail stored in this box */
-    private Stack<MailItem> mail;
+public abstract class StorageBox {
+    /** The number of mail items stored across all floors */
+    private int numItems;
+    /** The number of items stored of each priority, indexed by ordinal */
+    private final int[] priorityCounts = new int[MailItem.MailPriority.values().length];
+    /** The earliest arrival time of any stored item, or a lower bound of it once that item has been removed */
+    private long oldestArrival = Long.MAX_VALUE;
+    /** Set when the earliest arriving item is removed, until the earliest arrival time is next needed */
+    private boolean oldestRemoved;
 
     /** The maximum size of this box */
     public final int maxItems;
     private int remainingCapacity;
 
+    /** The last summary generated, kept until the contents of the box change */
+    private Summary summary;
+    /** Incremented every time the contents of the box change */
+    private long version;
+
+    /** Told of mail added to or taken from the box while it is held in storage, or null */
+    private StorageListener listener;
+    /** The identifier and slot the box is held under, reported with each event */
+    private String storedAs;
+    private int storedSlot;
+
     /**
      * Create a storage box of the given max number of mail units
      * @param maxSize the maximum number of mail units this box will fit
      */
-    public StorageBox(int maxSize){
+    protected StorageBox(int maxSize){
         this.maxItems = maxSize;
         this.remainingCapacity = maxSize;
-        this.mail = new Stack<MailItem>();
     }
 
     /**
@@ -37,14 +60,29 @@ public class StorageBox {
      * @throws MailOverflowException if there are no spaces remaining for new items in the box
      */
     public void addItem(MailItem item) throws MailOverflowException {
-        if(this.canHold(item)){
-            this.mail.push(item);
-            this.remainingCapacity -= item.size;
-        } else {
+        if(!this.offerItem(item)){
             throw new MailOverflowException(item.size, this.remainingCapacity);
         }
     }
 
+    /**
+     * Add a mail item to the box if it will fit, reporting the outcome rather than throwing.
+     * @param item the mail item to add to the box
+     * @return true if the item was added, false if there is not enough space remaining in the box
+     */
+    public boolean offerItem(MailItem item){
+        return this.offerItem(item, item.arrivalTime);
+    }
+
+    /**
+     * Add a mail item to the box if it will fit, noting the tick it was stored at so the time it spends in
+     * storage can be measured when the box is taken for delivery.
+     * @param item the mail item to add to the box
+     * @param tick the tick the item is being stored at
+     * @return true if the item was added, false if there is not enough space remaining in the box
+     */
+    public abstract boolean offerItem(MailItem item, long tick);
+
     /**
      * Remove an item (without deciding which item) from the box, updating the remaining capacity
      * @return The mail item removed from the box
@@ -54,10 +92,94 @@ public class StorageBox {
         if(this.isEmpty()){
             throw new BoxEmptyException();
         }
-        MailItem item = mail.pop();
-        // Update the remaining capacity
+        return this.pollItem();
+    }
+
+    /**
+     * Remove an item (without deciding which item) from the box, updating the remaining capacity
+     * @return The mail item removed from the box, or null if there are no items in the box
+     */
+    public abstract MailItem pollItem();
+
+    /**
+     * Remove every item addressed to the given floor from the box, updating the remaining capacity. Costs
+     * only the number of items removed, regardless of how much other mail is in the box.
+     * @param floor the floor being delivered to
+     * @return the (possibly empty) list of mail items for that floor
+     */
+    public abstract List<MailItem> removeItemsForFloor(int floor);
+
+    /**
+     * Record how long every item in the box has been in storage, typically as the box is taken for delivery
+     * @param tracker the tracker to record the time in
+     * @param tick the current tick
+     */
+    public abstract void recordDwell(LatencyTracker tracker, long tick);
+
+    /**
+     * Count an item the subclass has just stored, and tell the attached listener, if any, that it was added
+     * and whether that filled the box. Subclasses must call this after each item is added.
+     * @param item the item added
+     */
+    protected void added(MailItem item){
+        this.numItems += 1;
+        this.remainingCapacity -= item.size;
+        this.priorityCounts[item.priority.ordinal()] += 1;
+        this.oldestArrival = Math.min(this.oldestArrival, item.arrivalTime);
+        this.changed();
+        if(this.listener != null){
+            this.listener.itemAdded(this.storedAs, this.storedSlot, item);
+            if(this.remainingCapacity == 0){
+                this.listener.boxFull(this.storedAs, this.storedSlot);
+            }
+        }
+    }
+
+    /**
+     * Count an item the subclass has just taken out, noting if it may have been the earliest to arrive, and
+     * tell the attached listener, if any. Subclasses must call this after each item is removed.
+     * @param item the item removed
+     */
+    protected void removed(MailItem item){
+        this.numItems -= 1;
         this.remainingCapacity += item.size;
-        return item;
+        this.priorityCounts[item.priority.ordinal()] -= 1;
+        if(item.arrivalTime <= this.oldestArrival){
+            this.oldestRemoved = true;
+        }
+        this.changed();
+        if(this.listener != null){
+            this.listener.itemRemoved(this.storedAs, this.storedSlot, item);
+        }
+    }
+
+    /**
+     * Note that the contents of the box have changed
+     */
+    private void changed(){
+        this.summary = null;
+        this.version += 1;
+    }
+
+    /**
+     * Report mail added to and taken from the box to a storage unit's listeners, until the box is detached. Used
+     * by storage units as they create a box.
+     * @param listener the listener to tell of each item added or taken
+     * @param identifier the identifier the box is held under
+     * @param slot the slot the box is held in, or SlotStorage.NO_SLOT if storage is not slot keyed
+     */
+    public void attach(StorageListener listener, String identifier, int slot){
+        this.listener = listener;
+        this.storedAs = identifier;
+        this.storedSlot = slot;
+    }
+
+    /**
+     * Stop reporting changes to the box, as it leaves storage
+     */
+    public void detach(){
+        this.listener = null;
+        this.storedAs = null;
     }
 
     /**
@@ -65,9 +187,62 @@ public class StorageBox {
      * @return true if the box is empty
      */
     public boolean isEmpty(){
-        return mail.isEmpty();
+        return this.numItems == 0;
+    }
+
+    /**
+     * Retrieve the lowest floor that mail in this box is addressed to
+     * @return the lowest destination floor
+     * @throws BoxEmptyException if there is no items in the box
+     */
+    public abstract int lowestFloor() throws BoxEmptyException;
+
+    /**
+     * Retrieve the highest floor that mail in this box is addressed to
+     * @return the highest destination floor
+     * @throws BoxEmptyException if there is no items in the box
+     */
+    public abstract int highestFloor() throws BoxEmptyException;
+
+    /**
+     * Check if the floors this box holds mail for span any part of a range of floors
+     * @param lowestFloor the lowest floor of the range
+     * @param highestFloor the highest floor of the range
+     * @return true if the range of floors this box holds mail for overlaps the given range
+     */
+    public boolean overlaps(int lowestFloor, int highestFloor){
+        try {
+            return this.lowestFloor() <= highestFloor && this.highestFloor() >= lowestFloor;
+        } catch (BoxEmptyException e) {
+            return false;
+        }
     }
 
+    /**
+     * Create an empty box that holds its mail the same way as this one
+     * @param maxSize the maximum number of mail units the new box will fit
+     * @return the new box, which is not attached to any storage
+     */
+    public abstract StorageBox createEmpty(int maxSize);
+
+    /**
+     * Retrieve every floor that mail in this box is addressed to
+     * @return the destination floors, lowest first, which is empty if the box is
+     */
+    public abstract int[] floors();
+
+    /**
+     * Retrieve the number of different floors that mail in this box is addressed to
+     * @return the number of destination floors
+     */
+    protected abstract int numDests();
+
+    /**
+     * Find the earliest arrival time of the mail in this box by looking at every item
+     * @return the earliest arrival time, or Long.MAX_VALUE if the box is empty
+     */
+    protected abstract long earliestArrival();
+
     /**
      * Checks if this mail storage box can hold the given MailItem based on its
      * remaining capacity
@@ -83,24 +258,63 @@ public class StorageBox {
      * @return the number of mail items in this box
      */
     public int numPackages(){
-        return this.mail.size();
+        return this.numItems;
+    }
+
+    /**
+     * Return the number of items of a given priority stored in the mail box
+     * @param priority the priority to count
+     * @return the number of mail items of that priority in this box
+     */
+    public int numPackages(MailItem.MailPriority priority){
+        return this.priorityCounts[priority.ordinal()];
+    }
+
+    /**
+     * Retrieve the earliest arrival time of the mail in this box. Kept up to date as mail is added, and only
+     * recalculated from the contents of the box after the earliest item is removed.
+     * @return the earliest arrival time, or Long.MAX_VALUE if the box is empty
+     */
+    public long oldestArrival(){
+        if(this.oldestRemoved){
+            this.oldestArrival = this.earliestArrival();
+            this.oldestRemoved = false;
+        }
+        return this.oldestArrival;
+    }
+
+    /**
+     * Retrieve the version of the contents of this box, which changes whenever mail is added or removed.
+     * Lets storage systems notice changes made directly to a box they hold.
+     * @return the current version
+     */
+    public long version(){
+        return this.version;
     }
 
     /**
-     * Generate a summary object for use in planning storage and delivery
+     * Generate a summary object for use in planning storage and delivery. The item counts, remaining capacity,
+     * earliest arrival and per-floor groups are all kept up to date as mail is added and removed, so this is
+     * constant time, and the same summary is returned until the contents of the box change.
      * @param id the id assigned in the storage system to this box
      * @return a summary of the box
      */
     public Summary generateSummary(String id){
-        // Count the number of unique floors to deliver to
-        HashSet<Integer> floors = new HashSet<Integer>();
-        Iterator<MailItem> itemIterator = this.mail.iterator();
-        while(itemIterator.hasNext()){
-            MailItem item = itemIterator.next();
-            floors.add(item.floor);
+        return generateSummary(id, SlotStorage.NO_SLOT);
+    }
+
+    /**
+     * Generate a summary object for a box held in slot keyed storage
+     * @param id the id assigned in the storage system to this box
+     * @param slot the slot this box occupies in the storage system
+     * @return a summary of the box
+     */
+    public Summary generateSummary(String id, int slot){
+        if(this.summary == null || this.summary.slot != slot || !this.summary.identifier.equals(id)){
+            this.summary = new Summary(this.numItems, this.remainingCapacity, this.numDests(), id, slot,
+                    this.priorityCounts, this.oldestArrival());
         }
-        // Return the summary
-        return new Summary(this.mail.size(), this.remainingCapacity, floors.size(), id);
+        return this.summary;
     }
 
 
@@ -111,6 +325,11 @@ public class StorageBox {
         public final int remainingUnits;
         public final int numDests;
         public final String identifier;
+        public final int slot;
+        /** The earliest tick any item in the box arrived at, or Long.MAX_VALUE if the box is empty */
+        public final long oldestArrival;
+        /** The number of items of each priority, indexed by ordinal */
+        private final int[] priorityCounts;
 
         /**
          * Create a storage box summary, without access to any of the items. Immutable class.
@@ -120,10 +339,51 @@ public class StorageBox {
          * @param ID the box identifier in the storage unit
          */
         public Summary(int numItems, int remainingUnits, int numDests, String ID){
+            this(numItems, remainingUnits, numDests, ID, SlotStorage.NO_SLOT);
+        }
+
+        /**
+         * Create a storage box summary for a box held in slot keyed storage, counting no items by priority.
+         * Immutable class.
+         * @param numItems number of items in this box
+         * @param remainingUnits remaining number of units it can take
+         * @param numDests the number of different destinations within this box
+         * @param ID the box identifier in the storage unit
+         * @param slot the slot of the box in the storage unit
+         */
+        public Summary(int numItems, int remainingUnits, int numDests, String ID, int slot){
+            this(numItems, remainingUnits, numDests, ID, slot, new int[MailItem.MailPriority.values().length],
+                    Long.MAX_VALUE);
+        }
+
+        /**
+         * Create a storage box summary that also describes the priority and age of the mail. Immutable class.
+         * @param numItems number of items in this box
+         * @param remainingUnits remaining number of units it can take
+         * @param numDests the number of different destinations within this box
+         * @param ID the box identifier in the storage unit
+         * @param slot the slot of the box in the storage unit
+         * @param priorityCounts the number of items of each priority, indexed by ordinal, which is copied
+         * @param oldestArrival the earliest tick any item in the box arrived at
+         */
+        public Summary(int numItems, int remainingUnits, int numDests, String ID, int slot, int[] priorityCounts,
+                long oldestArrival){
             this.numItems = numItems;
             this.remainingUnits = remainingUnits;
             this.numDests = numDests;
             this.identifier = ID;
+            this.slot = slot;
+            this.priorityCounts = Arrays.copyOf(priorityCounts, priorityCounts.length);
+            this.oldestArrival = oldestArrival;
+        }
+
+        /**
+         * Retrieve the number of items of a given priority in the box when the summary was generated
+         * @param priority the priority to count
+         * @return the number of items of that priority
+         */
+        public int numItems(MailItem.MailPriority priority){
+            return this.priorityCounts[priority.ordinal()];
         }
 
         @Override
@@ -133,6 +393,9 @@ public class StorageBox {
                     ", numItems=" + numItems +
                     ", numDests=" + numDests +
                     ", identifier='" + identifier + '\'' +
+                    ", slot=" + slot +
+                    ", priorityCounts=" + Arrays.toString(priorityCounts) +
+                    ", oldestArrival=" + oldestArrival +
                     '}';
         }
     }
@@ -0,0 +1,56 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+/**
+ * Receives notice of changes to a mail storage unit, so that bots and the sorter can wait for storage to change
+ * instead of polling it. Every method does nothing by default, so listeners only implement the events they need.
+ * Events are delivered on the thread making the change, while the change is being made, so listeners should only
+ * note the event and return.
+ */
+public interface StorageListener {
+
+    /**
+     * A box has been created in storage
+     * @param identifier the identifier of the box
+     * @param slot the slot of the box, or SlotStorage.NO_SLOT if storage is not slot keyed
+     */
+    default void boxCreated(String identifier, int slot) {
+    }
+
+    /**
+     * An item has been added to a box in storage
+     * @param identifier the identifier of the box
+     * @param slot the slot of the box, or SlotStorage.NO_SLOT if storage is not slot keyed
+     * @param item the item added
+     */
+    default void itemAdded(String identifier, int slot, MailItem item) {
+    }
+
+    /**
+     * An item has been taken out of a box while the box is still in storage. Bots only take mail from boxes that
+     * have been delivered, so this is rare.
+     * @param identifier the identifier of the box
+     * @param slot the slot of the box, or SlotStorage.NO_SLOT if storage is not slot keyed
+     * @param item the item removed
+     */
+    default void itemRemoved(String identifier, int slot, MailItem item) {
+    }
+
+    /**
+     * A box in storage has been filled, leaving no room for any more mail
+     * @param identifier the identifier of the box
+     * @param slot the slot of the box, or SlotStorage.NO_SLOT if storage is not slot keyed
+     */
+    default void boxFull(String identifier, int slot) {
+    }
+
+    /**
+     * A box has been taken out of storage for delivery
+     * @param identifier the identifier of the box
+     * @param slot the slot the box occupied, or SlotStorage.NO_SLOT if storage is not slot keyed
+     */
+    default void boxDelivered(String identifier, int slot) {
+    }
+}
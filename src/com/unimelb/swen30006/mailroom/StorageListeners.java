@@ -0,0 +1,67 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The listeners registered with a storage unit, passing each event on to every one of them in the order they
+ * were added. Listeners may be added and removed while events are being delivered, from any thread.
+ */
+public final class StorageListeners implements StorageListener {
+
+    /** The registered listeners, copied on change as events far outnumber registrations */
+    private final CopyOnWriteArrayList<StorageListener> listeners = new CopyOnWriteArrayList<StorageListener>();
+
+    /**
+     * Start passing events on to a listener
+     * @param listener the listener to add
+     */
+    public void add(StorageListener listener) {
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Stop passing events on to a listener
+     * @param listener the listener to remove
+     */
+    public void remove(StorageListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    @Override
+    public void boxCreated(String identifier, int slot) {
+        for (StorageListener listener : this.listeners) {
+            listener.boxCreated(identifier, slot);
+        }
+    }
+
+    @Override
+    public void itemAdded(String identifier, int slot, MailItem item) {
+        for (StorageListener listener : this.listeners) {
+            listener.itemAdded(identifier, slot, item);
+        }
+    }
+
+    @Override
+    public void itemRemoved(String identifier, int slot, MailItem item) {
+        for (StorageListener listener : this.listeners) {
+            listener.itemRemoved(identifier, slot, item);
+        }
+    }
+
+    @Override
+    public void boxFull(String identifier, int slot) {
+        for (StorageListener listener : this.listeners) {
+            listener.boxFull(identifier, slot);
+        }
+    }
+
+    @Override
+    public void boxDelivered(String identifier, int slot) {
+        for (StorageListener listener : this.listeners) {
+            listener.boxDelivered(identifier, slot);
+        }
+    }
+}
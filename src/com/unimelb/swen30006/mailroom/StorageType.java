@@ -0,0 +1,48 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+import com.unimelb.swen30006.mailroom.samples.*;
+
+/**
+ * The kinds of mail room storage available to a simulation.
+ */
+public enum StorageType {
+
+    /** Boxes addressed by name, held in a hash map */
+    SIMPLE {
+        @Override
+        public MailStorage create(SimulationConfig config, boolean packedBoxes) {
+            return new SimpleMailStorage(config.maxBoxes, config.maxMailUnits, packedBoxes);
+        }
+    },
+
+    /** Boxes addressed by integer slot */
+    SLOTS {
+        @Override
+        public MailStorage create(SimulationConfig config, boolean packedBoxes) {
+            return new SlotMailStorage(config.maxBoxes, config.maxMailUnits, packedBoxes);
+        }
+    },
+
+    /** Boxes addressed by integer slot, safe to share between the sorter and bots on different threads */
+    CONCURRENT {
+        @Override
+        public MailStorage create(SimulationConfig config, boolean packedBoxes) {
+            if (packedBoxes) {
+                throw new IllegalArgumentException("Concurrent storage does not support packed boxes");
+            }
+            return new ConcurrentMailStorage(config.maxBoxes, config.maxMailUnits);
+        }
+    };
+
+    /**
+     * Create an empty storage unit of this kind
+     * @param config the building being simulated, which sets the number and size of boxes
+     * @param packedBoxes whether boxes hold their mail as packed longs rather than as MailItem objects
+     * @return the storage unit
+     * @throws IllegalArgumentException if this kind of storage cannot hold packed boxes
+     */
+    public abstract MailStorage create(SimulationConfig config, boolean packedBoxes);
+}
@@ -0,0 +1,29 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+/**
+ * A factory for the strategies used by a single simulation run. Each run asks the factory for
+ * fresh instances, so stateful strategies never need to be reset and runs can execute concurrently.
+ */
+public interface StrategyFactory {
+
+    /**
+     * Create the sorting strategy for a single run
+     * @return a new sorting strategy
+     */
+    SortingStrategy createSortingStrategy();
+
+    /**
+     * Create the selection strategy for a single run, shared by every bot in that run
+     * @return a new selection strategy
+     */
+    SelectionStrategy createSelectionStrategy();
+
+    /**
+     * Create the delivery strategy for a single delivery bot
+     * @return a new delivery strategy
+     */
+    DeliveryStrategy createDeliveryStrategy();
+}
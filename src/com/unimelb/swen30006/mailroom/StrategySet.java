@@ -0,0 +1,127 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+import com.unimelb.swen30006.mailroom.strategies.*;
+
+/**
+ * The combinations of strategies available to a simulation, named after the sorting strategy they use.
+ */
+public enum StrategySet {
+
+    /** Sorts each item into its 'perfect' box by floor */
+    ONE {
+        @Override
+        public StrategyFactory factoryFor(final SimulationConfig config) {
+            return new StrategyFactory() {
+                public SortingStrategy createSortingStrategy() {
+                    return new SortingStrategyOne(config.mailLevel, config.mailLevel, config.mailLevel);
+                }
+                public SelectionStrategy createSelectionStrategy() {
+                    return new SelectionStrategyOne(config.maxBoxes, config.maxMailUnits);
+                }
+                public DeliveryStrategy createDeliveryStrategy() {
+                    return new DeliveryStrategyOne();
+                }
+            };
+        }
+    },
+
+    /** Sorts each item into the first box with room whose floors are close enough */
+    TWO {
+        @Override
+        public StrategyFactory factoryFor(final SimulationConfig config) {
+            return new StrategyFactory() {
+                public SortingStrategy createSortingStrategy() {
+                    return new SortingStrategyTwo(config.maxBoxes, config.maxMailUnits);
+                }
+                public SelectionStrategy createSelectionStrategy() {
+                    return new SelectionStrategyOne(config.maxBoxes, config.maxMailUnits);
+                }
+                public DeliveryStrategy createDeliveryStrategy() {
+                    return new DeliveryStrategyOne();
+                }
+            };
+        }
+    },
+
+    /** Sorts each item into the fullest box it fits whose floors are close enough, through the storage index */
+    THREE {
+        @Override
+        public StrategyFactory factoryFor(final SimulationConfig config) {
+            return new StrategyFactory() {
+                public SortingStrategy createSortingStrategy() {
+                    return new SortingStrategyThree();
+                }
+                public SelectionStrategy createSelectionStrategy() {
+                    return new SelectionStrategyOne(config.maxBoxes, config.maxMailUnits);
+                }
+                public DeliveryStrategy createDeliveryStrategy() {
+                    return new DeliveryStrategyOne();
+                }
+            };
+        }
+    };
+
+    /**
+     * Create a factory for these strategies, configured for the given building
+     * @param config the building being simulated
+     * @return a factory providing fresh strategies for each run
+     */
+    public abstract StrategyFactory factoryFor(SimulationConfig config);
+
+    /**
+     * Swap the selection strategy of a set of strategies for one that sends out the most urgent box first
+     * @param strategies the strategies to keep the sorting and delivery strategies of
+     * @param config the building being simulated
+     * @return a factory providing the same strategies, but selecting boxes by urgency
+     */
+    public static StrategyFactory selectingByUrgency(final StrategyFactory strategies, final SimulationConfig config) {
+        return new StrategyFactory() {
+            public SortingStrategy createSortingStrategy() {
+                return strategies.createSortingStrategy();
+            }
+            public SelectionStrategy createSelectionStrategy() {
+                return new SelectionStrategyTwo(config.maxBoxes);
+            }
+            public DeliveryStrategy createDeliveryStrategy() {
+                return strategies.createDeliveryStrategy();
+            }
+        };
+    }
+
+    /**
+     * Swap the delivery strategy of a set of strategies for one that plans each box's route as a single sweep
+     * @param strategies the strategies to keep the sorting and selection strategies of
+     * @param config the building being simulated
+     * @return a factory providing the same strategies, but planning deliveries as sweeps
+     */
+    public static StrategyFactory deliveringBySweeps(final StrategyFactory strategies, final SimulationConfig config) {
+        return new StrategyFactory() {
+            public SortingStrategy createSortingStrategy() {
+                return strategies.createSortingStrategy();
+            }
+            public SelectionStrategy createSelectionStrategy() {
+                return strategies.createSelectionStrategy();
+            }
+            public DeliveryStrategy createDeliveryStrategy() {
+                return new DeliveryStrategyTwo(config.mailLevel);
+            }
+        };
+    }
+
+    /**
+     * Retrieve the strategies used for one of the named building profiles
+     * @param building the name of the building profile
+     * @return the strategies for that building
+     */
+    public static StrategySet forBuilding(String building) {
+        if (building.equals("large_building") || building.equals("big_building")
+                || building.equals("medium_building")) {
+            return TWO;
+        }
+        // Small buildings and the default detailed run share the same strategies
+        return ONE;
+    }
+}
@@ -0,0 +1,136 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+/**
+ * Constant memory statistics over a stream of non-negative integer measurements. Tracks the count, exact sum,
+ * minimum and maximum, the mean and variance using Welford's method, and a {@link LogHistogram} for percentiles.
+ * Statistics gathered separately, for example by different bots or runs, can be merged without loss.
+ */
+public class StreamingStatistic {
+
+    /** The number of measurements */
+    private long count;
+    /** The exact sum of the measurements */
+    private long sum;
+    /** The smallest and largest measurements */
+    private int min;
+    private int max;
+    /** The running mean, and the sum of squared differences from it */
+    private double mean;
+    private double m2;
+    /** The distribution of the measurements */
+    private final LogHistogram histogram;
+
+    /**
+     * Create statistics with no measurements
+     */
+    public StreamingStatistic() {
+        this.histogram = new LogHistogram();
+        this.min = Integer.MAX_VALUE;
+        this.max = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Record a measurement
+     * @param value the measurement, which must not be negative
+     */
+    public void record(int value) {
+        this.histogram.record(value);
+        this.count++;
+        this.sum += value;
+        this.min = Math.min(this.min, value);
+        this.max = Math.max(this.max, value);
+        double delta = value - this.mean;
+        this.mean += delta / this.count;
+        this.m2 += delta * (value - this.mean);
+    }
+
+    /**
+     * Add every measurement of another set of statistics to these
+     * @param other the statistics to merge, which are left unchanged
+     */
+    public void merge(StreamingStatistic other) {
+        if (other.count == 0) {
+            return;
+        }
+        long total = this.count + other.count;
+        // Chan et al.'s pairwise combination of the means and squared differences
+        double delta = other.mean - this.mean;
+        this.mean += delta * other.count / total;
+        this.m2 += other.m2 + delta * delta * ((double) this.count * other.count / total);
+        this.count = total;
+        this.sum += other.sum;
+        this.min = Math.min(this.min, other.min);
+        this.max = Math.max(this.max, other.max);
+        this.histogram.merge(other.histogram);
+    }
+
+    /**
+     * @return the number of measurements
+     */
+    public long count() {
+        return this.count;
+    }
+
+    /**
+     * @return the exact sum of the measurements
+     */
+    public long sum() {
+        return this.sum;
+    }
+
+    /**
+     * @return the mean of the measurements, or 0 if there are none
+     */
+    public double mean() {
+        return this.mean;
+    }
+
+    /**
+     * @return the sample variance of the measurements, or 0 if there are fewer than two
+     */
+    public double variance() {
+        return (this.count < 2) ? 0 : this.m2 / (this.count - 1);
+    }
+
+    /**
+     * @return the sample standard deviation of the measurements
+     */
+    public double standardDeviation() {
+        return Math.sqrt(variance());
+    }
+
+    /**
+     * @return the smallest measurement, or 0 if there are none
+     */
+    public int min() {
+        return (this.count == 0) ? 0 : this.min;
+    }
+
+    /**
+     * @return the largest measurement, or 0 if there are none
+     */
+    public int max() {
+        return (this.count == 0) ? 0 : this.max;
+    }
+
+    /**
+     * Estimate a percentile of the measurements, to within the accuracy of a {@link LogHistogram}
+     * @param percentile the percentile, between 0 and 100
+     * @return the estimate, limited to the range of the measurements
+     */
+    public int percentile(double percentile) {
+        if (this.count == 0) {
+            return 0;
+        }
+        return Math.max(this.min, Math.min(this.max, this.histogram.percentile(percentile)));
+    }
+
+    @Override
+    public String toString() {
+        return "mean " + mean() + ", sd " + standardDeviation() + ", min " + min() + ", p50 " + percentile(50)
+                + ", p95 " + percentile(95) + ", p99 " + percentile(99) + ", max " + max();
+    }
+}
@@ -0,0 +1,459 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom.samples;
+
+import com.unimelb.swen30006.mailroom.BoxIndex;
+import com.unimelb.swen30006.mailroom.LatencyTracker;
+import com.unimelb.swen30006.mailroom.MailItem;
+import com.unimelb.swen30006.mailroom.ObjectStorageBox;
+import com.unimelb.swen30006.mailroom.SlotStorage;
+import com.unimelb.swen30006.mailroom.StorageBox;
+import com.unimelb.swen30006.mailroom.StorageListener;
+import com.unimelb.swen30006.mailroom.StorageListeners;
+import com.unimelb.swen30006.mailroom.exceptions.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A thread safe mail room storage unit, so the sorter and each delivery bot can run on threads of their own.
+ * Boxes live in a fixed array of slots and are addressed by slot or by name, like {@link SlotMailStorage}, whose
+ * slot order and reuse it follows exactly.
+ *
+ * <p>
+ * Each box is guarded by its own lock, so storing mail in different boxes never contends, and looking up a box
+ * takes no lock at all. Creating a box and returning a delivered box's slot to the free list are serialised, as
+ * they are rare. Taking a box for delivery is an atomic claim, made under the box's lock, so two bots can never
+ * take the same box and no mail can be added to a box once it has been taken. Summaries are collected without
+ * blocking writers, and collected again if anything changed while they were being read, so every snapshot shows
+ * storage as it was at a single moment.
+ */
+public class ConcurrentMailStorage implements SlotStorage {
+
+    /* The box held in each slot, null when the slot is free */
+    private final AtomicReferenceArray<SharedBox> boxes;
+    /* The slot of every stored box, by identifier */
+    private final ConcurrentHashMap<String, Integer> slotsByName;
+    /* The identifier given to boxes created by slot, made once per slot */
+    private final String[] slotNames;
+    /* The free slots, with the next slot to use on top. Guarded by its own lock */
+    private final int[] freeSlots;
+    private volatile int numFree;
+    /* The size of storage units */
+    private final int storageBoxSize;
+
+    /* Counts every change to storage or to a stored box, so snapshots can tell whether they are consistent */
+    private final AtomicLong modifications = new AtomicLong();
+    /* The last consistent snapshot taken */
+    private volatile Snapshot snapshot;
+    /* Told of every change to storage, on the thread making it. Slot changes are reported holding the free list lock */
+    private final StorageListeners listeners = new StorageListeners();
+    /* The boxes ordered by remaining units, guarded by its own lock */
+    private final BoxIndex index;
+
+    /**
+     * Generate a new ConcurrentMailStorage unit with a limit on number of boxes
+     * @param maxBoxes The maximum number of boxes this storage unit can store
+     * @param boxSize the maximum number of units each box can fit
+     */
+    public ConcurrentMailStorage(int maxBoxes, int boxSize){
+        this.boxes = new AtomicReferenceArray<SharedBox>(maxBoxes);
+        this.slotsByName = new ConcurrentHashMap<String, Integer>();
+        this.slotNames = new String[maxBoxes];
+        this.freeSlots = new int[maxBoxes];
+        this.storageBoxSize = boxSize;
+        this.index = new BoxIndex(boxSize, (identifier, slot) -> this.boxes.get(slot));
+        this.listeners.add(new IndexUpdater());
+        // Fill the free stack so that the lowest slots are used first
+        for(int i = 0; i < maxBoxes; i++){
+            this.slotNames[i] = String.valueOf(i);
+            this.freeSlots[i] = maxBoxes - 1 - i;
+        }
+        this.numFree = maxBoxes;
+    }
+
+    @Override
+    public boolean isFull() {
+        return this.numFree == 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.numFree == this.boxes.length();
+    }
+
+    @Override
+    public int createSlot() throws MailOverflowException {
+        int slot = tryCreateSlot();
+        if(slot == NO_SLOT){
+            throw new MailOverflowException();
+        }
+        return slot;
+    }
+
+    @Override
+    public int tryCreateSlot() {
+        synchronized(this.freeSlots){
+            return fillSlot(null);
+        }
+    }
+
+    @Override
+    public StorageBox retrieveSlot(int slot) throws UnknownIdentifierException {
+        StorageBox box = findSlot(slot);
+        if(box == null){
+            throw new UnknownIdentifierException(String.valueOf(slot));
+        }
+        return box;
+    }
+
+    @Override
+    public StorageBox findSlot(int slot) {
+        if(slot < 0 || slot >= this.boxes.length()){
+            return null;
+        }
+        return this.boxes.get(slot);
+    }
+
+    @Override
+    public StorageBox deliverSlot(int slot) throws UnknownIdentifierException {
+        StorageBox box = tryDeliverSlot(slot);
+        if(box == null){
+            throw new UnknownIdentifierException(String.valueOf(slot));
+        }
+        return box;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Only one caller can take any given box, every other caller is told the slot holds no box.
+     */
+    @Override
+    public StorageBox tryDeliverSlot(int slot) {
+        SharedBox box = (SharedBox) findSlot(slot);
+        if(box == null || !box.claim()){
+            return null;
+        }
+        // The box is ours, so hand its slot back for reuse
+        synchronized(this.freeSlots){
+            this.boxes.set(slot, null);
+            this.slotsByName.remove(box.identifier, slot);
+            this.freeSlots[this.numFree] = slot;
+            this.numFree += 1;
+            // Reported before the slot can be reused, so listeners see each slot emptied before it is filled again
+            this.listeners.boxDelivered(box.identifier, slot);
+        }
+        return box;
+    }
+
+    @Override
+    public int slotOf(String identifier) {
+        Integer slot = this.slotsByName.get(identifier);
+        return (slot == null) ? NO_SLOT : slot;
+    }
+
+    @Override
+    public StorageBox retrieveBox(String name) throws UnknownIdentifierException {
+        StorageBox box = findBox(name);
+        if(box == null){
+            throw new UnknownIdentifierException(name);
+        }
+        return box;
+    }
+
+    @Override
+    public StorageBox findBox(String name) {
+        int slot = slotOf(name);
+        return (slot == NO_SLOT) ? null : findSlot(slot);
+    }
+
+    @Override
+    public boolean createBox(String name) throws DuplicateIdentifierException, MailOverflowException {
+        if(!this.tryCreateBox(name)){
+            throw new MailOverflowException();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean tryCreateBox(String name) throws DuplicateIdentifierException {
+        synchronized(this.freeSlots){
+            if(this.isFull()){
+                return false;
+            } else if(this.slotsByName.containsKey(name)){
+                throw new DuplicateIdentifierException(name);
+            }
+            fillSlot(name);
+            return true;
+        }
+    }
+
+    @Override
+    public StorageBox deliverBox(String identifer) throws UnknownIdentifierException {
+        StorageBox box = tryDeliverBox(identifer);
+        if(box == null){
+            throw new UnknownIdentifierException(identifer);
+        }
+        return box;
+    }
+
+    @Override
+    public StorageBox tryDeliverBox(String identifer) {
+        int slot = slotOf(identifer);
+        return (slot == NO_SLOT) ? null : tryDeliverSlot(slot);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Summaries are in slot order. They are shared between callers until storage next changes, but each caller
+     * is given its own copy of the array.
+     */
+    @Override
+    public StorageBox.Summary[] retrieveSummaries() {
+        while(true){
+            long before = this.modifications.get();
+            Snapshot current = this.snapshot;
+            if(current != null && current.modifications == before){
+                return current.summaries.clone();
+            }
+            StorageBox.Summary[] summaries = new StorageBox.Summary[this.boxes.length()];
+            int n = 0;
+            for(int i = 0; i < summaries.length; i++){
+                SharedBox box = this.boxes.get(i);
+                StorageBox.Summary summary = (box == null) ? null : box.summarise(i);
+                if(summary != null){
+                    summaries[n++] = summary;
+                }
+            }
+            // If nothing changed while we looked, every summary describes storage as it was when we started
+            if(this.modifications.get() == before){
+                current = new Snapshot(before, Arrays.copyOf(summaries, n));
+                this.snapshot = current;
+                return current.summaries.clone();
+            }
+        }
+    }
+
+    @Override
+    public BoxIndex.Entry findSmallestFit(int size, int lowestFloor) {
+        synchronized(this.index){
+            return this.index.smallestFit(size, lowestFloor);
+        }
+    }
+
+    @Override
+    public BoxIndex.Entry findFullestBox() {
+        synchronized(this.index){
+            return this.index.fullest();
+        }
+    }
+
+    @Override
+    public void addListener(StorageListener listener) {
+        this.listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(StorageListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Place a new box in the next free slot. Must be called holding the free list lock.
+     * @param name the identifier of the box, or null to name it after its slot
+     * @return the slot used, or NO_SLOT if there are no free slots remaining
+     */
+    private int fillSlot(String name) {
+        if(this.isFull()){
+            return NO_SLOT;
+        }
+        int slot = this.freeSlots[this.numFree - 1];
+        this.numFree -= 1;
+        String identifier = (name == null) ? this.slotNames[slot] : name;
+        // A box named after its slot may clash with a named box, in which case it is only reachable by slot
+        this.slotsByName.putIfAbsent(identifier, slot);
+        SharedBox box = new SharedBox(this.storageBoxSize, identifier);
+        box.attach(this.listeners, identifier, slot);
+        this.boxes.set(slot, box);
+        this.modifications.incrementAndGet();
+        this.listeners.boxCreated(identifier, slot);
+        return slot;
+    }
+
+    /** Keeps the index up to date, under its lock, from whichever thread changes storage */
+    private class IndexUpdater implements StorageListener {
+        @Override
+        public void boxCreated(String identifier, int slot) {
+            synchronized(index){
+                index.boxCreated(identifier, slot);
+            }
+        }
+
+        @Override
+        public void itemAdded(String identifier, int slot, MailItem item) {
+            synchronized(index){
+                index.itemAdded(identifier, slot, item);
+            }
+        }
+
+        @Override
+        public void itemRemoved(String identifier, int slot, MailItem item) {
+            synchronized(index){
+                index.itemRemoved(identifier, slot, item);
+            }
+        }
+
+        @Override
+        public void boxDelivered(String identifier, int slot) {
+            synchronized(index){
+                index.boxDelivered(identifier, slot);
+            }
+        }
+    }
+
+    /** A consistent set of summaries, along with the modification count they were taken at. Immutable. */
+    private static class Snapshot {
+        private final long modifications;
+        private final StorageBox.Summary[] summaries;
+
+        private Snapshot(long modifications, StorageBox.Summary[] summaries){
+            this.modifications = modifications;
+            this.summaries = summaries;
+        }
+    }
+
+    /**
+     * A storage box guarded by its own lock, which refuses new mail once it has been claimed for delivery.
+     * Every change to a box that is still in storage is counted, so summaries can detect it.
+     */
+    private class SharedBox extends ObjectStorageBox {
+        /* The identifier of the box in storage */
+        private final String identifier;
+        /* Whether the box has been taken for delivery */
+        private boolean claimed;
+
+        private SharedBox(int maxSize, String identifier){
+            super(maxSize);
+            this.identifier = identifier;
+        }
+
+        /**
+         * Take the box for delivery, unless another caller already has
+         * @return true if this caller took the box
+         */
+        private synchronized boolean claim(){
+            if(this.claimed){
+                return false;
+            }
+            this.claimed = true;
+            this.detach();
+            modifications.incrementAndGet();
+            return true;
+        }
+
+        /**
+         * Summarise the box if it is still in storage
+         * @param slot the slot the box occupies
+         * @return the summary, or null if the box has been claimed
+         */
+        private synchronized Summary summarise(int slot){
+            return this.claimed ? null : super.generateSummary(this.identifier, slot);
+        }
+
+        @Override
+        public synchronized boolean offerItem(MailItem item, long tick){
+            if(this.claimed || !super.offerItem(item, tick)){
+                return false;
+            }
+            modifications.incrementAndGet();
+            return true;
+        }
+
+        @Override
+        public synchronized MailItem popItem() throws BoxEmptyException {
+            return super.popItem();
+        }
+
+        @Override
+        public synchronized MailItem pollItem(){
+            MailItem item = super.pollItem();
+            if(item != null && !this.claimed){
+                modifications.incrementAndGet();
+            }
+            return item;
+        }
+
+        @Override
+        public synchronized List<MailItem> removeItemsForFloor(int floor){
+            List<MailItem> items = super.removeItemsForFloor(floor);
+            if(!items.isEmpty() && !this.claimed){
+                modifications.incrementAndGet();
+            }
+            return items;
+        }
+
+        @Override
+        public synchronized void recordDwell(LatencyTracker tracker, long tick){
+            super.recordDwell(tracker, tick);
+        }
+
+        @Override
+        public synchronized boolean isEmpty(){
+            return super.isEmpty();
+        }
+
+        @Override
+        public synchronized int lowestFloor() throws BoxEmptyException {
+            return super.lowestFloor();
+        }
+
+        @Override
+        public synchronized int highestFloor() throws BoxEmptyException {
+            return super.highestFloor();
+        }
+
+        @Override
+        public synchronized boolean overlaps(int lowestFloor, int highestFloor){
+            return super.overlaps(lowestFloor, highestFloor);
+        }
+
+        @Override
+        public synchronized int[] floors(){
+            return super.floors();
+        }
+
+        @Override
+        public synchronized boolean canHold(MailItem item){
+            return super.canHold(item);
+        }
+
+        @Override
+        public synchronized int numPackages(){
+            return super.numPackages();
+        }
+
+        @Override
+        public synchronized int numPackages(MailItem.MailPriority priority){
+            return super.numPackages(priority);
+        }
+
+        @Override
+        public synchronized long oldestArrival(){
+            return super.oldestArrival();
+        }
+
+        @Override
+        public synchronized long version(){
+            return super.version();
+        }
+
+        @Override
+        public synchronized Summary generateSummary(String id, int slot){
+            return super.generateSummary(id, slot);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom.samples;
+
+import com.unimelb.swen30006.mailroom.MailItem;
+import com.unimelb.swen30006.mailroom.MailSource;
+import com.unimelb.swen30006.mailroom.MailSourceFactory;
+import com.unimelb.swen30006.mailroom.SimulationClock;
+import com.unimelb.swen30006.mailroom.exceptions.SourceExhaustedException;
+
+import java.util.Arrays;
+
+/**
+ * A fixed sequence of mail items held as primitive columns, one array per attribute. A dataset is generated or
+ * recorded once and never changes, so any number of runs on any number of threads can replay it at the same time,
+ * each through its own {@link Cursor}.
+ */
+public class MailDataset implements MailSourceFactory {
+
+    /** The name of sources reading from a dataset */
+    private static final String NAME = "Mail Dataset";
+    /** The addressee of every item, as the generator only produces one */
+    private static final String ADDRESSEE = "Mat";
+
+    /** The types and priorities in ordinal order, so columns can hold ordinals */
+    private static final MailItem.MailType[] TYPES = MailItem.MailType.values();
+    private static final MailItem.MailPriority[] PRIORITIES = MailItem.MailPriority.values();
+
+    /** The destination floor of each item */
+    private final int[] floor;
+    /** The ordinal of the type of each item */
+    private final byte[] type;
+    /** The ordinal of the priority of each item */
+    private final byte[] priority;
+    /** The size of each item, in mail units */
+    private final byte[] size;
+
+    private MailDataset(int[] floor, byte[] type, byte[] priority, byte[] size) {
+        this.floor = floor;
+        this.type = type;
+        this.priority = priority;
+        this.size = size;
+    }
+
+    /**
+     * Generate the same items a {@link SimpleMailGenerator} would produce from a seed, using every type and priority
+     * @param minFloor the minimum floor (basements are represented by negative floors)
+     * @param maxFloor the maximum floor in the building
+     * @param numMail the number of mail items to generate
+     * @param seed the seed for the generator
+     * @return the generated items
+     */
+    public static MailDataset generate(int minFloor, int maxFloor, int numMail, long seed) {
+        return record(new SimpleMailGenerator(minFloor, maxFloor, PRIORITIES, TYPES, numMail, seed), numMail);
+    }
+
+    /**
+     * Record the items of any mail source, until it is exhausted or enough have been taken
+     * @param source the source to record, which is consumed
+     * @param maxItems the largest number of items to take
+     * @return the recorded items
+     * @throws IllegalArgumentException if an item is too large to be held in a dataset
+     */
+    public static MailDataset record(MailSource source, int maxItems) {
+        int[] floor = new int[maxItems];
+        byte[] type = new byte[maxItems];
+        byte[] priority = new byte[maxItems];
+        byte[] size = new byte[maxItems];
+        int n = 0;
+        try {
+            while (n < maxItems && source.hasNextMail()) {
+                MailItem item = source.nextItem();
+                if (item.size < 0 || item.size > Byte.MAX_VALUE) {
+                    throw new IllegalArgumentException("Cannot record an item of size " + item.size);
+                }
+                floor[n] = item.floor;
+                type[n] = (byte) item.packageType.ordinal();
+                priority[n] = (byte) item.priority.ordinal();
+                size[n] = (byte) item.size;
+                n++;
+            }
+        } catch (SourceExhaustedException e) {
+            // The source ran out despite reporting mail, so keep what was taken
+        }
+        if (n < maxItems) {
+            floor = Arrays.copyOf(floor, n);
+            type = Arrays.copyOf(type, n);
+            priority = Arrays.copyOf(priority, n);
+            size = Arrays.copyOf(size, n);
+        }
+        return new MailDataset(floor, type, priority, size);
+    }
+
+    /**
+     * Retrieve the number of items in the dataset
+     * @return the number of items
+     */
+    public int numItems() {
+        return this.floor.length;
+    }
+
+    /**
+     * Start reading the dataset from its first item, with every item arriving at tick zero
+     * @return a new cursor
+     */
+    public Cursor cursor() {
+        return new Cursor(null);
+    }
+
+    /**
+     * Start reading the dataset from its first item, stamping each item with the tick it is read at
+     * @param clock the clock of the simulation reading the items
+     * @return a new cursor
+     */
+    public Cursor cursor(SimulationClock clock) {
+        return new Cursor(clock);
+    }
+
+    @Override
+    public MailSource createMailSource(SimulationClock clock) {
+        return cursor(clock);
+    }
+
+    /**
+     * A mail source reading a dataset in order. Each cursor has its own position, so cursors over the same
+     * dataset are independent, but a single cursor should only be used by one thread.
+     */
+    public class Cursor implements MailSource {
+
+        /** The index of the next item to read */
+        private int position;
+        /** The clock that stamps each item with its arrival, or null to stamp every item with tick zero */
+        private final SimulationClock clock;
+
+        private Cursor(SimulationClock clock) {
+            this.clock = clock;
+        }
+
+        @Override
+        public boolean hasNextMail() {
+            return this.position < floor.length;
+        }
+
+        @Override
+        public MailItem nextItem() throws SourceExhaustedException {
+            if (!this.hasNextMail()) {
+                throw new SourceExhaustedException(NAME);
+            }
+            return read(this.position++);
+        }
+
+        @Override
+        public int nextBatch(int max, MailItem[] into, int offset) {
+            int n = Math.min(max, floor.length - this.position);
+            for (int i = 0; i < n; i++) {
+                into[offset + i] = read(this.position++);
+            }
+            return n;
+        }
+
+        /**
+         * Build the item at an index
+         * @param i the index of the item
+         * @return the item
+         */
+        private MailItem read(int i) {
+            long arrival = (this.clock == null) ? 0 : this.clock.now();
+            return new MailItem(TYPES[type[i]], PRIORITIES[priority[i]], floor[i], ADDRESSEE, size[i], arrival);
+        }
+
+        /**
+         * Retrieve the number of items read so far
+         * @return the index of the next item to read
+         */
+        public int position() {
+            return this.position;
+        }
+    }
+}
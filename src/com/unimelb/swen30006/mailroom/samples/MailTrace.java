@@ -0,0 +1,274 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom.samples;
+
+import com.unimelb.swen30006.mailroom.MailItem;
+import com.unimelb.swen30006.mailroom.MailSource;
+import com.unimelb.swen30006.mailroom.MailSourceFactory;
+import com.unimelb.swen30006.mailroom.SimulationClock;
+import com.unimelb.swen30006.mailroom.exceptions.SourceExhaustedException;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A recorded sequence of mail items in the binary trace format, replayed by memory mapping the file. Items are
+ * decoded only as they are read, so a trace of any length costs almost no heap, and pages of the file are loaded
+ * by the operating system as the replay reaches them. The mapping is read only and shared, so any number of runs
+ * may replay the same trace concurrently, each through its own {@link Cursor}.
+ *
+ * <p>
+ * A trace is a {@link #HEADER_SIZE} byte header followed by one {@link #RECORD_SIZE} byte record per item, all
+ * big endian. The header holds the magic number {@link #MAGIC}, the format {@link #VERSION} and record size as
+ * shorts, and the number of records as a long. Each record holds the destination floor as an int, the ordinals of
+ * the item's type and priority as bytes, its size as a short, and the ticks since the previous item arrived (or
+ * since tick zero, for the first) as an int, so records are in order of arrival. Addressees are not recorded, and
+ * every item replayed is addressed to {@value #ADDRESSEE}. Traces are written by {@link MailTraceWriter}.
+ *
+ * <p>
+ * Replay releases each item only once the clock reaches its recorded arrival, and stamps it with that arrival.
+ * Traces of the first version, with {@link #V1_RECORD_SIZE} byte records and no arrivals, can still be replayed,
+ * with every item arriving at tick zero.
+ */
+public class MailTrace implements MailSourceFactory {
+
+    /** Identifies a file as a mail trace, the characters "MAIL" */
+    public static final int MAGIC = 0x4D41494C;
+    /** The version of the format described above */
+    public static final short VERSION = 2;
+    /** The size of the header, in bytes */
+    public static final int HEADER_SIZE = 16;
+    /** The size of each record, in bytes */
+    public static final int RECORD_SIZE = 12;
+    /** The first version of the format, whose records lack the arrival */
+    static final short V1 = 1;
+    /** The size of each record in the first version, in bytes */
+    static final int V1_RECORD_SIZE = 8;
+    /** The position of the record count within the header */
+    static final int COUNT_OFFSET = 8;
+
+    /** The name of sources replaying a trace */
+    private static final String NAME = "Mail Trace";
+    /** The addressee of every item, as traces do not record one */
+    public static final String ADDRESSEE = "Mat";
+    /** The number of records in each mapped window, a power of two kept well within the limit of a single mapping */
+    private static final int WINDOW_BITS = 27;
+
+    /** The types and priorities in ordinal order, as recorded */
+    private static final MailItem.MailType[] TYPES = MailItem.MailType.values();
+    private static final MailItem.MailPriority[] PRIORITIES = MailItem.MailPriority.values();
+
+    /** The records of the trace, split into windows as a single mapping is limited to two gigabytes */
+    private final MappedByteBuffer[] windows;
+    /** The number of records in the trace */
+    private final long numItems;
+    /** The size of each record, which depends on the version of the trace */
+    private final int recordSize;
+    /** The number of records in each window but the last, as a power of two */
+    private final int windowBits;
+
+    private MailTrace(MappedByteBuffer[] windows, long numItems, int recordSize, int windowBits) {
+        this.windows = windows;
+        this.numItems = numItems;
+        this.recordSize = recordSize;
+        this.windowBits = windowBits;
+    }
+
+    /**
+     * Map a trace file for replay
+     * @param path the trace file
+     * @return the mapped trace
+     * @throws IOException if the file cannot be read, or is not a complete trace
+     */
+    public static MailTrace open(Path path) throws IOException {
+        return open(path, WINDOW_BITS);
+    }
+
+    /**
+     * Map a trace file for replay in windows of a chosen size, so tests can cross windows with small traces
+     * @param path the trace file
+     * @param windowBits the number of records in each window, as a power of two
+     * @return the mapped trace
+     * @throws IOException if the file cannot be read, or is not a complete trace
+     */
+    static MailTrace open(Path path, int windowBits) throws IOException {
+        long windowRecords = 1L << windowBits;
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            // Check the header describes a trace this reader understands
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException(path + " is too short to be a mail trace");
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException(path + " is not a mail trace");
+            }
+            short version = header.getShort(4);
+            int recordSize = header.getShort(6);
+            if (!(version == VERSION && recordSize == RECORD_SIZE || version == V1 && recordSize == V1_RECORD_SIZE)) {
+                throw new IOException(path + " is version " + version + " with " + recordSize
+                        + " byte records, only versions " + V1 + " and " + VERSION + " are supported");
+            }
+            long numItems = header.getLong(COUNT_OFFSET);
+            if (numItems < 0 || channel.size() < HEADER_SIZE + numItems * recordSize) {
+                throw new IOException(path + " is truncated, it should hold " + numItems + " records");
+            }
+
+            // Map the records, which remain readable once the channel is closed
+            MappedByteBuffer[] windows = new MappedByteBuffer[(int) ((numItems + windowRecords - 1) >>> windowBits)];
+            for (int w = 0; w < windows.length; w++) {
+                long first = w * windowRecords;
+                long records = Math.min(windowRecords, numItems - first);
+                windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * recordSize,
+                        records * recordSize);
+            }
+            return new MailTrace(windows, numItems, recordSize, windowBits);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Retrieve the number of items in the trace
+     * @return the number of items
+     */
+    public long numItems() {
+        return this.numItems;
+    }
+
+    /**
+     * Find where a record starts within its window
+     * @param index the index of the record
+     * @return the offset of the record in bytes
+     */
+    private int offset(long index) {
+        return (int) (index & ((1L << this.windowBits) - 1)) * this.recordSize;
+    }
+
+    /**
+     * Read the ticks between the arrival of an item and the one before it
+     * @param index the index of the record
+     * @return the ticks since the previous item arrived, which is zero for traces without arrivals
+     */
+    private long arrivalDelta(long index) {
+        if (this.recordSize == V1_RECORD_SIZE) {
+            return 0;
+        }
+        return this.windows[(int) (index >>> this.windowBits)].getInt(offset(index) + 8) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Start replaying the trace from its first item, releasing each item once the clock reaches its arrival
+     * @param clock the clock of the simulation reading the items, or null to release every item at once
+     * @return a new cursor
+     */
+    public Cursor cursor(SimulationClock clock) {
+        return new Cursor(clock);
+    }
+
+    @Override
+    public MailSource createMailSource(SimulationClock clock) {
+        return cursor(clock);
+    }
+
+    /**
+     * A mail source replaying a trace in order. Reads use absolute positions within the shared mapping, so cursors
+     * over the same trace are independent, but a single cursor should only be used by one thread. Mail that has
+     * not yet arrived is still reported by {@link #hasNextMail()}, but is not handed out until it has.
+     */
+    public class Cursor implements MailSource {
+
+        /** The index of the next record to read */
+        private long position;
+        /** The arrival of the next record, read ahead so it can be held back until then */
+        private long nextArrival;
+        /** The clock that decides which items have arrived, or null to release every item at once */
+        private final SimulationClock clock;
+
+        private Cursor(SimulationClock clock) {
+            this.clock = clock;
+            this.nextArrival = (numItems > 0) ? arrivalDelta(0) : 0;
+        }
+
+        @Override
+        public boolean hasNextMail() {
+            return this.position < numItems;
+        }
+
+        /**
+         * Check if the next item has arrived, so would be handed out
+         * @return true if mail remains and the clock has reached the arrival of the next item
+         */
+        public boolean hasArrivedMail() {
+            return this.hasNextMail() && (this.clock == null || this.nextArrival <= this.clock.now());
+        }
+
+        /**
+         * {@inheritDoc}
+         * @throws SourceExhaustedException if no mail is left, or the next item has not arrived yet
+         */
+        @Override
+        public MailItem nextItem() throws SourceExhaustedException {
+            if (!this.hasArrivedMail()) {
+                throw new SourceExhaustedException(NAME);
+            }
+            return read();
+        }
+
+        /**
+         * {@inheritDoc}
+         * Fewer items are also retrieved when the next has not arrived yet.
+         */
+        @Override
+        public int nextBatch(int max, MailItem[] into, int offset) {
+            int n = 0;
+            while (n < max && this.hasArrivedMail()) {
+                into[offset + n] = read();
+                n++;
+            }
+            return n;
+        }
+
+        /**
+         * Decode the next record, and read ahead to the arrival of the one after
+         * @return the item it describes
+         */
+        private MailItem read() {
+            long index = this.position++;
+            MappedByteBuffer window = windows[(int) (index >>> windowBits)];
+            int offset = offset(index);
+            int floor = window.getInt(offset);
+            int type = window.get(offset + 4);
+            int priority = window.get(offset + 5);
+            int size = window.getShort(offset + 6);
+            if (type < 0 || type >= TYPES.length || priority < 0 || priority >= PRIORITIES.length || size < 0) {
+                throw new IllegalStateException("Corrupt record " + index + " in mail trace");
+            }
+            long arrival = this.nextArrival;
+            if (this.position < numItems) {
+                this.nextArrival = arrival + arrivalDelta(this.position);
+            }
+            return new MailItem(TYPES[type], PRIORITIES[priority], floor, ADDRESSEE, size, arrival);
+        }
+
+        /**
+         * Retrieve the arrival of the next item to read
+         * @return the tick the next item arrives at, or the arrival of the last item if none remain
+         */
+        public long nextArrival() {
+            return this.nextArrival;
+        }
+
+        /**
+         * Retrieve the number of items read so far
+         * @return the index of the next item to read
+         */
+        public long position() {
+            return this.position;
+        }
+    }
+}
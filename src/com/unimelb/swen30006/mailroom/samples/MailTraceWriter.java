@@ -0,0 +1,166 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom.samples;
+
+import com.unimelb.swen30006.mailroom.MailItem;
+import com.unimelb.swen30006.mailroom.MailSource;
+import com.unimelb.swen30006.mailroom.exceptions.SourceExhaustedException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes mail items to a file in the binary trace format read by {@link MailTrace}. Records are buffered and
+ * written in blocks, and the record count in the header is filled in when the writer is closed, so a trace is only
+ * complete once its writer has been closed.
+ */
+public class MailTraceWriter implements Closeable {
+
+    /** The number of records buffered between writes */
+    private static final int BUFFER_RECORDS = 8192;
+    /** The most ticks that can be recorded between the arrivals of consecutive items, an unsigned int */
+    private static final long MAX_ARRIVAL_DELTA = 0xFFFFFFFFL;
+
+    /** The file being written */
+    private final FileChannel channel;
+    /** Records waiting to be written */
+    private final ByteBuffer buffer;
+    /** The number of records written so far */
+    private long numItems;
+    /** The arrival of the last item written, from which the next item's arrival is recorded */
+    private long lastArrival;
+
+    /**
+     * Create a trace file, replacing any existing file
+     * @param path the file to write
+     * @throws IOException if the file cannot be created
+     */
+    public MailTraceWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocate(BUFFER_RECORDS * MailTrace.RECORD_SIZE);
+
+        // Write the header, with no records until the writer is closed
+        ByteBuffer header = ByteBuffer.allocate(MailTrace.HEADER_SIZE);
+        header.putInt(MailTrace.MAGIC).putShort(MailTrace.VERSION).putShort((short) MailTrace.RECORD_SIZE).putLong(0);
+        header.flip();
+        writeFully(header);
+    }
+
+    /**
+     * Append an item to the trace. Only the floor, type, priority, size and arrival of the item are recorded, and
+     * its addressee is lost. Items must be written in order of arrival.
+     * @param item the item to append
+     * @throws IOException if the record cannot be written
+     * @throws IllegalArgumentException if the item is too large to record, or arrived before the last item written
+     * or too long after it
+     */
+    public void write(MailItem item) throws IOException {
+        if (item.size < 0 || item.size > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Cannot record an item of size " + item.size);
+        }
+        long delta = item.arrivalTime - this.lastArrival;
+        if (delta < 0 || delta > MAX_ARRIVAL_DELTA) {
+            throw new IllegalArgumentException("Cannot record an item arriving at " + item.arrivalTime
+                    + " after one arriving at " + this.lastArrival);
+        }
+        if (!this.buffer.hasRemaining()) {
+            flush();
+        }
+        this.buffer.putInt(item.floor).put((byte) item.packageType.ordinal()).put((byte) item.priority.ordinal())
+                .putShort((short) item.size).putInt((int) delta);
+        this.lastArrival = item.arrivalTime;
+        this.numItems++;
+    }
+
+    /**
+     * Retrieve the number of items written so far
+     * @return the number of items
+     */
+    public long numItems() {
+        return this.numItems;
+    }
+
+    /**
+     * Write any buffered records, fill in the record count and close the file
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            ByteBuffer count = ByteBuffer.allocate(Long.BYTES);
+            count.putLong(this.numItems);
+            count.flip();
+            while (count.hasRemaining()) {
+                this.channel.write(count, MailTrace.COUNT_OFFSET + count.position());
+            }
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Record every item of a mail source to a new trace file
+     * @param source the source to record, which is consumed
+     * @param path the file to write
+     * @return the number of items recorded
+     * @throws IOException if the file cannot be written
+     */
+    public static long record(MailSource source, Path path) throws IOException {
+        MailTraceWriter writer = new MailTraceWriter(path);
+        try {
+            while (source.hasNextMail()) {
+                writer.write(source.nextItem());
+            }
+        } catch (SourceExhaustedException e) {
+            // The source ran out despite reporting mail, so keep what was taken
+        } finally {
+            writer.close();
+        }
+        return writer.numItems();
+    }
+
+    /**
+     * Record generated mail to a trace file.
+     * Usage: {@code MailTraceWriter <trace> <minFloor> <maxFloor> <numMail> [seed]}
+     */
+    public static void main(String args[]) throws IOException {
+        if (args.length < 4) {
+            System.err.println("usage: MailTraceWriter <trace> <minFloor> <maxFloor> <numMail> [seed]");
+            System.exit(1);
+        }
+        long seed = (args.length > 4) ? Long.parseLong(args[4]) : SimpleMailGenerator.fixedSeed();
+        MailSource source = new SimpleMailGenerator(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                MailItem.MailPriority.values(), MailItem.MailType.values(), Integer.parseInt(args[3]), seed);
+        long recorded = record(source, Paths.get(args[0]));
+        System.out.println("Recorded " + recorded + " items to " + args[0]);
+    }
+
+    /**
+     * Flush the buffered records to the file
+     * @throws IOException if the file cannot be written
+     */
+    private void flush() throws IOException {
+        this.buffer.flip();
+        writeFully(this.buffer);
+        this.buffer.clear();
+    }
+
+    /**
+     * Write the whole of a buffer at the end of the file
+     * @param source the bytes to write
+     * @throws IOException if the file cannot be written
+     */
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            this.channel.write(source);
+        }
+    }
+}
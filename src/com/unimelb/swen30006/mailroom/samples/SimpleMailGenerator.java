@@ -6,6 +6,7 @@ package com.unimelb.swen30006.mailroom.samples;
 
 import com.unimelb.swen30006.mailroom.MailItem;
 import com.unimelb.swen30006.mailroom.MailSource;
+import com.unimelb.swen30006.mailroom.SimulationClock;
 import com.unimelb.swen30006.mailroom.exceptions.SourceExhaustedException;
 
 import java.util.Random;
@@ -32,6 +33,8 @@ public class SimpleMailGenerator implements MailSource {
     private final MailItem.MailType[] types;
     /** The priorities of mail that can be generated **/
     private final MailItem.MailPriority[] priorities;
+    /** The clock that stamps each item with its arrival, or null to stamp every item with tick zero */
+    private final SimulationClock clock;
 
 
     /** Integer representations of base mail sizes for generation */
@@ -54,18 +57,68 @@ public class SimpleMailGenerator implements MailSource {
      */
     public SimpleMailGenerator(int minFloor, int maxFloor, MailItem.MailPriority[] priorities,
                                MailItem.MailType[] types, int maxNumMail, boolean predictable){
+        this(minFloor, maxFloor, priorities, types, maxNumMail,
+                predictable ? new Random(FIXED_SEED) : new Random(), null);
+    }
+
+    /**
+     * Create a mail generator that draws from an explicit seed, so that independent runs can each be
+     * given their own reproducible stream of mail.
+     * @param minFloor the minimum floor (basements are represented by negative floors)
+     * @param maxFloor the maximum floor in the building
+     * @param priorities the priorities that we can select from when generating mail
+     * @param types the types we can select from when generating mail
+     * @param maxNumMail the number of mail items to generate
+     * @param seed the seed for the pseudorandom number generator
+     */
+    public SimpleMailGenerator(int minFloor, int maxFloor, MailItem.MailPriority[] priorities,
+                               MailItem.MailType[] types, int maxNumMail, long seed){
+        this(minFloor, maxFloor, priorities, types, maxNumMail, new Random(seed), null);
+    }
+
+    /**
+     * Create a mail generator that draws from an explicit seed and stamps each item with the tick it was taken,
+     * so that the time each item takes to be delivered can be tracked.
+     * @param minFloor the minimum floor (basements are represented by negative floors)
+     * @param maxFloor the maximum floor in the building
+     * @param priorities the priorities that we can select from when generating mail
+     * @param types the types we can select from when generating mail
+     * @param maxNumMail the number of mail items to generate
+     * @param seed the seed for the pseudorandom number generator
+     * @param clock the clock of the simulation the mail is generated for
+     */
+    public SimpleMailGenerator(int minFloor, int maxFloor, MailItem.MailPriority[] priorities,
+                               MailItem.MailType[] types, int maxNumMail, long seed, SimulationClock clock){
+        this(minFloor, maxFloor, priorities, types, maxNumMail, new Random(seed), clock);
+    }
+
+    private SimpleMailGenerator(int minFloor, int maxFloor, MailItem.MailPriority[] priorities,
+                                MailItem.MailType[] types, int maxNumMail, Random random, SimulationClock clock){
         this.numFloors = maxFloor - minFloor + 1;
         this.minFloor = minFloor;
         this.types = types;
         this.priorities = priorities;
-        if (predictable){
-            this.random = new Random(FIXED_SEED);
-        } else {
-            this.random = new Random();
-        }
+        this.random = random;
+        this.clock = clock;
         this.numRemaining = maxNumMail;
     }
 
+    /**
+     * Retrieve the size of the largest item this generator can produce
+     * @return the largest item size, in mail units
+     */
+    public static int maxItemSize(){
+        return PACKAGE + SIZE_SPAN - 1;
+    }
+
+    /**
+     * Retrieve the seed used by predictable generators, so callers can reproduce the predictable stream
+     * @return the fixed seed
+     */
+    public static long fixedSeed(){
+        return FIXED_SEED;
+    }
+
     /* Mail Source Methods */
 
     @Override
@@ -95,7 +148,8 @@ public class SimpleMailGenerator implements MailSource {
         int floor = generateFloor();
         String name = generateName();
         MailItem.MailPriority priority = generatePriority();
-        return new MailItem(type, priority, floor, name, size);
+        long arrival = (this.clock == null) ? 0 : this.clock.now();
+        return new MailItem(type, priority, floor, name, size, arrival);
     }
 
     /**
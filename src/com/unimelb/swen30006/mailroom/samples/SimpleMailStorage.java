@@ -4,27 +4,65 @@
  */
 package com.unimelb.swen30006.mailroom.samples;
 
+import com.unimelb.swen30006.mailroom.BoxIndex;
+import com.unimelb.swen30006.mailroom.MailItem;
 import com.unimelb.swen30006.mailroom.MailStorage;
+import com.unimelb.swen30006.mailroom.ObjectStorageBox;
+import com.unimelb.swen30006.mailroom.PackedStorageBox;
+import com.unimelb.swen30006.mailroom.SlotStorage;
 import com.unimelb.swen30006.mailroom.StorageBox;
+import com.unimelb.swen30006.mailroom.StorageListener;
+import com.unimelb.swen30006.mailroom.StorageListeners;
 import com.unimelb.swen30006.mailroom.exceptions.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * A simple implementation of a Mail room storage unit, hides any internal
  * implementation of data structures used and allows you to store items in known
  * box IDs or retrieve whole boxes. Has a fixed storage box size.
+ *
+ * The storage keeps a version that advances whenever a box is created, delivered or
+ * has its contents changed, and hands out the same summary snapshot until it does.
+ * Changes to the contents of stored boxes are counted as the boxes report them, and
+ * callers can ask what has changed since a version they saw earlier.
  */
 public class SimpleMailStorage implements MailStorage {
 
+    /* The number of delivered box identifiers remembered for answering change queries */
+    private static final int MAX_REMOVED_HISTORY = 1024;
+
     /* The data store for the actual mail items */
-    private HashMap<String, StorageBox> storage;
+    private HashMap<String, Slot> storage;
     /* The maximum number of boxes this can store */
     private final int maxBoxes;
     /* The size of storage units */
     private final int storageBoxSize;
+    /* Whether boxes hold their mail packed into primitive arrays */
+    private final boolean packedBoxes;
+
+    /* The current version of the storage unit */
+    private long version = 0;
+    /* The cached summaries, valid while snapshotVersion matches version */
+    private StorageBox.Summary[] snapshot;
+    private long snapshotVersion = -1;
+    /* Identifiers of delivered boxes along with the version they were delivered at, in a ring with the
+       oldest at removedStart */
+    private final String[] removedIds = new String[MAX_REMOVED_HISTORY];
+    private final long[] removedVersions = new long[MAX_REMOVED_HISTORY];
+    private int removedStart = 0;
+    private int numRemoved = 0;
+    /* Changes to versions at or before this one may have been forgotten */
+    private long historyStart = 0;
+    /* Told of every change to storage */
+    private final StorageListeners listeners = new StorageListeners();
+    /* The boxes ordered by remaining units, kept up to date as one of the listeners */
+    private final BoxIndex index;
 
 
     /**
@@ -33,9 +71,34 @@ public class SimpleMailStorage implements MailStorage {
      * @param boxSize the maximum number of units each box can fit
      */
     public SimpleMailStorage(int maxBoxes, int boxSize){
+        this(maxBoxes, boxSize, false);
+    }
+
+    /**
+     * Generate a new SimpleMailStorage unit with a limit on number of boxes, choosing how boxes hold their mail
+     * @param maxBoxes The maximum number of boxes this storage unit can store
+     * @param boxSize the maximum number of units each box can fit
+     * @param packedBoxes whether to create {@link PackedStorageBox}es rather than plain storage boxes
+     */
+    public SimpleMailStorage(int maxBoxes, int boxSize, boolean packedBoxes){
         this.maxBoxes = maxBoxes;
         this.storageBoxSize = boxSize;
-        this.storage = new HashMap<String,StorageBox>();
+        this.index = new BoxIndex(boxSize, (identifier, slot) -> this.findBox(identifier));
+        this.listeners.add(this.index);
+        // Stored boxes are filled directly by the sorter, and report each change to their contents
+        this.listeners.add(new StorageListener() {
+            @Override
+            public void itemAdded(String identifier, int slot, MailItem item) {
+                changed(identifier);
+            }
+
+            @Override
+            public void itemRemoved(String identifier, int slot, MailItem item) {
+                changed(identifier);
+            }
+        });
+        this.packedBoxes = packedBoxes;
+        this.storage = new HashMap<String,Slot>();
     }
 
     @Override
@@ -50,44 +113,215 @@ public class SimpleMailStorage implements MailStorage {
 
     @Override
     public StorageBox retrieveBox(String name) throws UnknownIdentifierException {
-        if(this.storage.containsKey(name)){
-            StorageBox box = this.storage.get(name);
+        StorageBox box = findBox(name);
+        if(box != null){
             return box;
         } else {
             throw new UnknownIdentifierException(name);
         }
     }
 
+    @Override
+    public StorageBox findBox(String name) {
+        Slot slot = this.storage.get(name);
+        return (slot == null) ? null : slot.box;
+    }
+
     @Override
     public boolean createBox(String name) throws DuplicateIdentifierException, MailOverflowException{
-        if(this.isFull()){
+        if(!this.tryCreateBox(name)){
             throw new MailOverflowException();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean tryCreateBox(String name) throws DuplicateIdentifierException {
+        if(this.isFull()){
+            return false;
         } else if (this.storage.containsKey(name)){
             throw new DuplicateIdentifierException(name);
         } else {
-            StorageBox box = new StorageBox(this.storageBoxSize);
-            this.storage.put(name, box);
+            StorageBox box = this.packedBoxes ? new PackedStorageBox(this.storageBoxSize)
+                    : new ObjectStorageBox(this.storageBoxSize);
+            this.version += 1;
+            this.storage.put(name, new Slot(box, this.version));
+            box.attach(this.listeners, name, SlotStorage.NO_SLOT);
+            this.listeners.boxCreated(name, SlotStorage.NO_SLOT);
             return true;
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * The summaries are shared between callers until storage next changes, but each caller is given its own
+     * copy of the array.
+     */
     @Override
     public StorageBox.Summary[] retrieveSummaries() {
-        ArrayList<StorageBox.Summary> summaries = new ArrayList<StorageBox.Summary>();
-        // Iterate over the hash map and return the summaries
-        for(Map.Entry<String,StorageBox> entry : this.storage.entrySet()){
-            StorageBox box = entry.getValue();
-            summaries.add(box.generateSummary(entry.getKey()));
+        if(this.snapshotVersion != this.version){
+            ArrayList<StorageBox.Summary> summaries = new ArrayList<StorageBox.Summary>();
+            // Iterate over the hash map and return the summaries
+            for(Map.Entry<String,Slot> entry : this.storage.entrySet()){
+                summaries.add(entry.getValue().box.generateSummary(entry.getKey()));
+            }
+            this.snapshot = summaries.toArray(new StorageBox.Summary[0]);
+            this.snapshotVersion = this.version;
         }
         // Return the summaries
-        return summaries.toArray(new StorageBox.Summary[0]);
+        return this.snapshot.clone();
     }
 
     @Override
     public StorageBox deliverBox(String identifer) throws UnknownIdentifierException {
-        StorageBox box = retrieveBox(identifer);
+        StorageBox box = tryDeliverBox(identifer);
+        if(box == null){
+            throw new UnknownIdentifierException(identifer);
+        }
+        return box;
+    }
+
+    @Override
+    public StorageBox tryDeliverBox(String identifer) {
+        StorageBox box = findBox(identifer);
+        if(box == null){
+            return null;
+        }
         this.storage.remove(identifer);
+        this.version += 1;
+        recordRemoval(identifer);
+        box.detach();
+        this.listeners.boxDelivered(identifer, SlotStorage.NO_SLOT);
         return box;
     }
 
+    @Override
+    public BoxIndex.Entry findSmallestFit(int size, int lowestFloor) {
+        return this.index.smallestFit(size, lowestFloor);
+    }
+
+    @Override
+    public BoxIndex.Entry findFullestBox() {
+        return this.index.fullest();
+    }
+
+    @Override
+    public void addListener(StorageListener listener) {
+        this.listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(StorageListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Retrieve the current version of the storage unit. The version advances whenever a box is created
+     * or delivered, or mail is added to or removed from a stored box.
+     * @return the current version
+     */
+    public long version() {
+        return this.version;
+    }
+
+    /**
+     * Retrieve what has changed in storage since a previously observed version.
+     * @param since a version previously returned by {@link #version()} or {@link Changes#version}
+     * @return the summaries of boxes created or changed, and identifiers of boxes delivered, since that version
+     */
+    public Changes changesSince(long since) {
+        // If the removals after that version have been forgotten, the caller must start again from everything
+        boolean complete = since < this.historyStart;
+        ArrayList<StorageBox.Summary> changed = new ArrayList<StorageBox.Summary>();
+        for(Map.Entry<String,Slot> entry : this.storage.entrySet()){
+            Slot slot = entry.getValue();
+            if(complete || slot.changedAt > since){
+                changed.add(slot.box.generateSummary(entry.getKey()));
+            }
+        }
+        // Removals are in version order, so count back from the newest to find those after the given version
+        int first = this.numRemoved;
+        if(!complete){
+            while(first > 0 && this.removedVersions[(this.removedStart + first - 1) % MAX_REMOVED_HISTORY] > since){
+                first--;
+            }
+        }
+        String[] removed = new String[this.numRemoved - first];
+        for(int i = 0; i < removed.length; i++){
+            removed[i] = this.removedIds[(this.removedStart + first + i) % MAX_REMOVED_HISTORY];
+        }
+        return new Changes(this.version, complete, changed.toArray(new StorageBox.Summary[0]), removed);
+    }
+
+    /**
+     * Advance the version as a stored box reports a change to its contents
+     * @param identifier the identifier of the box that changed
+     */
+    private void changed(String identifier) {
+        this.version += 1;
+        this.storage.get(identifier).changedAt = this.version;
+    }
+
+    /**
+     * Remember that a box has been delivered, forgetting the oldest delivery once the history is full
+     * @param identifier the identifier of the delivered box
+     */
+    private void recordRemoval(String identifier) {
+        if(this.numRemoved == MAX_REMOVED_HISTORY){
+            this.historyStart = this.removedVersions[this.removedStart];
+            this.removedStart = (this.removedStart + 1) % MAX_REMOVED_HISTORY;
+            this.numRemoved--;
+        }
+        int next = (this.removedStart + this.numRemoved) % MAX_REMOVED_HISTORY;
+        this.removedIds[next] = identifier;
+        this.removedVersions[next] = this.version;
+        this.numRemoved++;
+    }
+
+    /** A stored box, along with the storage version at which it last changed */
+    private static class Slot {
+        private final StorageBox box;
+        private long changedAt;
+
+        private Slot(StorageBox box, long changedAt){
+            this.box = box;
+            this.changedAt = changedAt;
+        }
+    }
+
+    /** The changes in storage between two versions. Immutable. */
+    public static class Changes {
+        // The version of storage these changes bring a caller up to
+        public final long version;
+        // True if the changes could not be computed, and every stored box is included instead
+        public final boolean complete;
+        // Summaries of boxes that were created or changed
+        private final StorageBox.Summary[] changed;
+        // Identifiers of boxes that were delivered, oldest first
+        private final String[] removed;
+
+        private Changes(long version, boolean complete, StorageBox.Summary[] changed, String[] removed){
+            this.version = version;
+            this.complete = complete;
+            this.changed = changed;
+            this.removed = removed;
+        }
+
+        /**
+         * Retrieve the summaries of boxes created or changed since the requested version, or of every stored box
+         * if the changes are complete
+         * @return the summaries
+         */
+        public List<StorageBox.Summary> changed(){
+            return Collections.unmodifiableList(Arrays.asList(this.changed));
+        }
+
+        /**
+         * Retrieve the identifiers of boxes delivered since the requested version, oldest first
+         * @return the identifiers
+         */
+        public List<String> removed(){
+            return Collections.unmodifiableList(Arrays.asList(this.removed));
+        }
+    }
 }
@@ -0,0 +1,276 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom.samples;
+
+import com.unimelb.swen30006.mailroom.BoxIndex;
+import com.unimelb.swen30006.mailroom.MailItem;
+import com.unimelb.swen30006.mailroom.ObjectStorageBox;
+import com.unimelb.swen30006.mailroom.PackedStorageBox;
+import com.unimelb.swen30006.mailroom.SlotStorage;
+import com.unimelb.swen30006.mailroom.StorageBox;
+import com.unimelb.swen30006.mailroom.StorageListener;
+import com.unimelb.swen30006.mailroom.StorageListeners;
+import com.unimelb.swen30006.mailroom.exceptions.*;
+
+/**
+ * A mail room storage unit backed by a fixed array of box slots and a stack of free slots. Boxes
+ * are addressed by slot, so storing and delivering mail never hashes or allocates identifiers.
+ * Named boxes are still supported for strategies that work with identifiers, by searching the slots.
+ *
+ * Like {@link SimpleMailStorage}, the storage keeps a version that advances whenever a box is created,
+ * delivered or has its contents changed, and hands out the same summary snapshot until it does.
+ */
+public class SlotMailStorage implements SlotStorage {
+
+    /* The boxes held in each slot, null when the slot is free */
+    private final StorageBox[] boxes;
+    /* The identifier of the box held in each slot */
+    private final String[] identifiers;
+    /* The identifier given to boxes created by slot, made once per slot */
+    private final String[] slotNames;
+    /* The free slots, with the next slot to use on top */
+    private final int[] freeSlots;
+    private int numFree;
+    /* The size of storage units */
+    private final int storageBoxSize;
+    /* Whether boxes hold their mail packed into primitive arrays */
+    private final boolean packedBoxes;
+
+    /* Told of every change to storage */
+    private final StorageListeners listeners = new StorageListeners();
+    /* The boxes ordered by remaining units, kept up to date as one of the listeners */
+    private final BoxIndex index;
+
+    /* The current version of the storage unit */
+    private long version = 0;
+    /* The cached summaries, valid while snapshotVersion matches version */
+    private StorageBox.Summary[] snapshot;
+    private long snapshotVersion = -1;
+
+    /**
+     * Generate a new SlotMailStorage unit with a limit on number of boxes
+     * @param maxBoxes The maximum number of boxes this storage unit can store
+     * @param boxSize the maximum number of units each box can fit
+     */
+    public SlotMailStorage(int maxBoxes, int boxSize){
+        this(maxBoxes, boxSize, false);
+    }
+
+    /**
+     * Generate a new SlotMailStorage unit with a limit on number of boxes, choosing how boxes hold their mail
+     * @param maxBoxes The maximum number of boxes this storage unit can store
+     * @param boxSize the maximum number of units each box can fit
+     * @param packedBoxes whether to create {@link PackedStorageBox}es rather than plain storage boxes
+     */
+    public SlotMailStorage(int maxBoxes, int boxSize, boolean packedBoxes){
+        this.packedBoxes = packedBoxes;
+        this.boxes = new StorageBox[maxBoxes];
+        this.identifiers = new String[maxBoxes];
+        this.slotNames = new String[maxBoxes];
+        this.freeSlots = new int[maxBoxes];
+        this.storageBoxSize = boxSize;
+        this.index = new BoxIndex(boxSize, (identifier, slot) -> this.boxes[slot]);
+        this.listeners.add(this.index);
+        // Stored boxes are filled directly by the sorter, and report each change to their contents
+        this.listeners.add(new StorageListener() {
+            @Override
+            public void itemAdded(String identifier, int slot, MailItem item) {
+                version += 1;
+            }
+
+            @Override
+            public void itemRemoved(String identifier, int slot, MailItem item) {
+                version += 1;
+            }
+        });
+        // Fill the free stack so that the lowest slots are used first
+        for(int i = 0; i < maxBoxes; i++){
+            this.slotNames[i] = String.valueOf(i);
+            this.freeSlots[i] = maxBoxes - 1 - i;
+        }
+        this.numFree = maxBoxes;
+    }
+
+    @Override
+    public boolean isFull() {
+        return this.numFree == 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.numFree == this.boxes.length;
+    }
+
+    @Override
+    public int createSlot() throws MailOverflowException {
+        int slot = tryCreateSlot();
+        if(slot == NO_SLOT){
+            throw new MailOverflowException();
+        }
+        return slot;
+    }
+
+    @Override
+    public int tryCreateSlot() {
+        return fillSlot(null);
+    }
+
+    @Override
+    public StorageBox retrieveSlot(int slot) throws UnknownIdentifierException {
+        StorageBox box = findSlot(slot);
+        if(box == null){
+            throw new UnknownIdentifierException(String.valueOf(slot));
+        }
+        return box;
+    }
+
+    @Override
+    public StorageBox findSlot(int slot) {
+        if(slot < 0 || slot >= this.boxes.length){
+            return null;
+        }
+        return this.boxes[slot];
+    }
+
+    @Override
+    public StorageBox deliverSlot(int slot) throws UnknownIdentifierException {
+        StorageBox box = tryDeliverSlot(slot);
+        if(box == null){
+            throw new UnknownIdentifierException(String.valueOf(slot));
+        }
+        return box;
+    }
+
+    @Override
+    public StorageBox tryDeliverSlot(int slot) {
+        StorageBox box = findSlot(slot);
+        if(box == null){
+            return null;
+        }
+        String identifier = this.identifiers[slot];
+        this.boxes[slot] = null;
+        this.identifiers[slot] = null;
+        this.freeSlots[this.numFree++] = slot;
+        this.version += 1;
+        box.detach();
+        this.listeners.boxDelivered(identifier, slot);
+        return box;
+    }
+
+    @Override
+    public int slotOf(String identifier) {
+        for(int i = 0; i < this.identifiers.length; i++){
+            if(identifier.equals(this.identifiers[i])){
+                return i;
+            }
+        }
+        return NO_SLOT;
+    }
+
+    @Override
+    public StorageBox retrieveBox(String name) throws UnknownIdentifierException {
+        int slot = slotOf(name);
+        if(slot == NO_SLOT){
+            throw new UnknownIdentifierException(name);
+        }
+        return this.boxes[slot];
+    }
+
+    @Override
+    public boolean createBox(String name) throws DuplicateIdentifierException, MailOverflowException {
+        if(!this.tryCreateBox(name)){
+            throw new MailOverflowException();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean tryCreateBox(String name) throws DuplicateIdentifierException {
+        if(this.isFull()){
+            return false;
+        } else if(slotOf(name) != NO_SLOT){
+            throw new DuplicateIdentifierException(name);
+        }
+        fillSlot(name);
+        return true;
+    }
+
+    @Override
+    public StorageBox deliverBox(String identifer) throws UnknownIdentifierException {
+        int slot = slotOf(identifer);
+        if(slot == NO_SLOT){
+            throw new UnknownIdentifierException(identifer);
+        }
+        return deliverSlot(slot);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Summaries are in slot order. They are shared between callers until storage next changes, but each caller
+     * is given its own copy of the array.
+     */
+    @Override
+    public StorageBox.Summary[] retrieveSummaries() {
+        if(this.snapshotVersion != this.version){
+            StorageBox.Summary[] summaries = new StorageBox.Summary[this.boxes.length - this.numFree];
+            int n = 0;
+            for(int i = 0; i < this.boxes.length; i++){
+                if(this.boxes[i] != null){
+                    summaries[n++] = this.boxes[i].generateSummary(this.identifiers[i], i);
+                }
+            }
+            this.snapshot = summaries;
+            this.snapshotVersion = this.version;
+        }
+        return this.snapshot.clone();
+    }
+
+    @Override
+    public BoxIndex.Entry findSmallestFit(int size, int lowestFloor) {
+        return this.index.smallestFit(size, lowestFloor);
+    }
+
+    @Override
+    public BoxIndex.Entry findFullestBox() {
+        return this.index.fullest();
+    }
+
+    @Override
+    public void addListener(StorageListener listener) {
+        this.listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(StorageListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Place a new box in the next free slot
+     * @param name the identifier of the box, or null to name it after its slot
+     * @return the slot used, or NO_SLOT if there are no free slots remaining
+     */
+    private int fillSlot(String name) {
+        if(this.isFull()){
+            return NO_SLOT;
+        }
+        int slot = this.freeSlots[--this.numFree];
+        this.boxes[slot] = this.packedBoxes ? new PackedStorageBox(this.storageBoxSize)
+                : new ObjectStorageBox(this.storageBoxSize);
+        this.identifiers[slot] = (name == null) ? this.slotNames[slot] : name;
+        this.version += 1;
+        this.boxes[slot].attach(this.listeners, this.identifiers[slot], slot);
+        this.listeners.boxCreated(this.identifiers[slot], slot);
+        return slot;
+    }
+
+    /**
+     * Retrieve the current version of the storage unit. The version advances whenever a box is created
+     * or delivered, or mail is added to or removed from a stored box.
+     * @return the current version
+     */
+    public long version() {
+        return this.version;
+    }
+}
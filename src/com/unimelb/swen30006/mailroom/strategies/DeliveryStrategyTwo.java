@@ -0,0 +1,165 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom.strategies;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.unimelb.swen30006.mailroom.DeliveryStrategy;
+import com.unimelb.swen30006.mailroom.StorageBox;
+import com.unimelb.swen30006.mailroom.exceptions.SourceExhaustedException;
+
+/**
+ * Delivery strategy that plans the whole route of a box when it is first asked about it,
+ * as one sweep up then down, or down then up, from the floor the bot starts on, stopping
+ * at each floor the first time it is passed and ending back at the mail room. The sweep
+ * travelling fewer floors, counting the trip back to the mail room, is taken, and if both
+ * travel as far, the one reaching floors sooner on average. Plans are cached by the floors
+ * they visit, so each step only reads the next floor of the plan.
+ * Relies on the bot delivering every item for a floor when it is sent there.
+ */
+public class DeliveryStrategyTwo implements DeliveryStrategy {
+	// The most plans remembered, forgetting the least recently used beyond it
+	private static final int CACHE_SIZE = 1024;
+	
+	// The floor the bot returns to after each delivery
+	private final int mailFloor;
+	// The plans made so far, by starting floor and floors visited
+	private final Map<Route, int[]> plans = new LinkedHashMap<Route, int[]>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Route, int[]> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+	// The box being delivered, the plan for it and the position of the next floor in the plan
+	private StorageBox box;
+	private int[] plan;
+	private int next;
+	
+	public DeliveryStrategyTwo(int mailFloor) {
+		this.mailFloor = mailFloor;
+	}
+	
+	@Override
+	public int chooseNextFloor(int currentFloor, StorageBox box) throws SourceExhaustedException {
+		// Exit if box starts empty
+		if (box.isEmpty()) {
+			return 0;
+		}
+		// Plan the route as a new box is started
+		if (box != this.box || this.next >= this.plan.length) {
+			this.box = box;
+			this.plan = planFor(currentFloor, box.floors());
+			this.next = 0;
+		}
+		return this.plan[this.next++];
+	}
+	
+	/**
+	 * Find the plan for visiting a set of floors, making it if it is not remembered
+	 * @param start the floor the bot starts from
+	 * @param floors the floors to visit, lowest first
+	 * @return the floors in the order to visit them
+	 */
+	private int[] planFor(int start, int[] floors) {
+		Route route = new Route(start, floors);
+		int[] plan = this.plans.get(route);
+		if (plan == null) {
+			plan = plan(start, floors);
+			this.plans.put(route, plan);
+		}
+		return plan;
+	}
+	
+	/**
+	 * Choose the better of the two sweeps over a set of floors
+	 * @param start the floor the bot starts from
+	 * @param floors the floors to visit, lowest first
+	 * @return the floors in the order to visit them
+	 */
+	private int[] plan(int start, int[] floors) {
+		int n = floors.length;
+		// Floors below the start, and floors up to and including it
+		int below = 0;
+		while (below < n && floors[below] < start) {
+			below++;
+		}
+		int upTo = below;
+		while (upTo < n && floors[upTo] == start) {
+			upTo++;
+		}
+		// Up through the floors at or above the start, then down through the rest
+		int[] upFirst = new int[n];
+		int i = 0;
+		for (int j = below; j < n; j++) {
+			upFirst[i++] = floors[j];
+		}
+		for (int j = below - 1; j >= 0; j--) {
+			upFirst[i++] = floors[j];
+		}
+		// Down through the floors at or below the start, then up through the rest
+		int[] downFirst = new int[n];
+		i = 0;
+		for (int j = upTo - 1; j >= 0; j--) {
+			downFirst[i++] = floors[j];
+		}
+		for (int j = upTo; j < n; j++) {
+			downFirst[i++] = floors[j];
+		}
+		long upTravel = travel(start, upFirst, true);
+		long downTravel = travel(start, downFirst, true);
+		if (upTravel != downTravel) {
+			return (upTravel < downTravel) ? upFirst : downFirst;
+		}
+		return (travel(start, upFirst, false) < travel(start, downFirst, false)) ? upFirst : downFirst;
+	}
+	
+	/**
+	 * Measure a route, either as the floors travelled to visit every floor and return to the mail
+	 * room, or as the sum of the floors travelled before reaching each floor
+	 * @param start the floor the bot starts from
+	 * @param order the floors in the order they are visited
+	 * @param total whether to measure the whole trip rather than how long floors wait
+	 * @return the measure of the route
+	 */
+	private long travel(int start, int[] order, boolean total) {
+		long travelled = 0;
+		long waited = 0;
+		int floor = start;
+		for (int next : order) {
+			travelled += Math.abs(next - floor);
+			waited += travelled;
+			floor = next;
+		}
+		return total ? travelled + Math.abs(this.mailFloor - floor) : waited;
+	}
+	
+	/** A starting floor and the floors to visit from it, as the key of a plan */
+	private static final class Route {
+		private final int start;
+		private final int[] floors;
+		private final int hash;
+		
+		private Route(int start, int[] floors) {
+			this.start = start;
+			this.floors = floors;
+			this.hash = 31 * start + Arrays.hashCode(floors);
+		}
+		
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Route)) {
+				return false;
+			}
+			Route route = (Route) other;
+			return this.start == route.start && Arrays.equals(this.floors, route.floors);
+		}
+		
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+	}
+}
@@ -6,47 +6,88 @@
 package com.unimelb.swen30006.mailroom.strategies;
 
 import com.unimelb.swen30006.mailroom.SelectionStrategy;
-import com.unimelb.swen30006.mailroom.Simulation;
+import com.unimelb.swen30006.mailroom.SlotStorage;
+import com.unimelb.swen30006.mailroom.SortingProgress;
 import com.unimelb.swen30006.mailroom.StorageBox;
 import com.unimelb.swen30006.mailroom.StorageBox.Summary;
 import com.unimelb.swen30006.mailroom.exceptions.NoBoxReadyException;
 
 /**
  * Selection strategy that will wait until sorting has finished, a
- * box is full or when all boxes are being used
+ * box is full or when all boxes are being used. Learns that sorting
+ * has finished from the sorter, through trackSorting.
  *
  */
 public class SelectionStrategyOne implements SelectionStrategy {
-	// Counter to count until sorting has finished
-	private int count = 0;
-	// True if sorting has finished
-	private boolean endSorting = false;
+	// The progress of the sorter, which says when sorting has finished
+	private SortingProgress sorting;
 	// Simulation variables for sorting
-	private int MAX_BOXES, MAX_MAIL_UNITS, NUM_MAIL, NUM_BOTS;
+	private int MAX_BOXES, MAX_MAIL_UNITS;
 	
-	public SelectionStrategyOne(int MAX_BOXES, int MAX_MAIL_UNITS, int NUM_MAIL, int NUM_BOTS){
+	public SelectionStrategyOne(int MAX_BOXES, int MAX_MAIL_UNITS){
 		this.MAX_BOXES = MAX_BOXES;
 		this.MAX_MAIL_UNITS = MAX_MAIL_UNITS;
-		this.NUM_MAIL = NUM_MAIL;
-		this.NUM_BOTS = NUM_BOTS;
+	}
+	
+	@Override
+	public void trackSorting(SortingProgress progress) {
+		this.sorting = progress;
+	}
+	
+	/**
+	 * Decisions depend only on the summaries and on whether sorting has finished, which changes as the
+	 * sorter stores its last item
+	 */
+	@Override
+	public boolean requiresPolling() {
+		return false;
 	}
 	
 	@Override
 	public String selectNextDelivery(Summary[] summaries) throws NoBoxReadyException {
-		// Count for every iteration of bot
-		count += 1;
-		
+		Summary selected = select(summaries);
+		if (selected == null) {
+			throw new NoBoxReadyException();
+		}
+		return selected.identifier;
+	}
+	
+	@Override
+	public int selectNextSlot(Summary[] summaries) throws NoBoxReadyException {
+		Summary selected = select(summaries);
+		if (selected == null) {
+			throw new NoBoxReadyException();
+		}
+		return selected.slot;
+	}
+	
+	@Override
+	public String trySelectNextDelivery(Summary[] summaries) {
+		Summary selected = select(summaries);
+		return (selected == null) ? null : selected.identifier;
+	}
+	
+	@Override
+	public int trySelectNextSlot(Summary[] summaries) {
+		Summary selected = select(summaries);
+		return (selected == null) ? SlotStorage.NO_SLOT : selected.slot;
+	}
+	
+	/**
+	 * Select the summary of the next box to deliver
+	 * @param summaries the summaries of the storage boxes
+	 * @return the summary of the box to deliver, or null if no box is ready
+	 */
+	private Summary select(Summary[] summaries) {
 		// Return if no boxes found
 		if (summaries.length == 0) {
-			throw new NoBoxReadyException();
+			return null;
 		}
 		
 		// Check if boxes are completely full
 		for (Summary summary : summaries) {
 			if (summary.remainingUnits == 0) {
-				// Decrement count as bot is delivering
-				count -= 2*summary.numDests+1;
-				return summary.identifier;
+				return summary;
 			}
 		}
 		
@@ -60,31 +101,19 @@ public class SelectionStrategyOne implements SelectionStrategy {
 					minUnits = summaries[i].remainingUnits;
 				}
 			}
-			// Decrement count as bot is delivering
-			count -= 2*tempSummary.numDests+1;
-			return tempSummary.identifier;
-		}
-		
-		// If sorting has finished, change boolean endSorting value
-		if ((count-1) == NUM_MAIL*NUM_BOTS){
-			endSorting = true;
+			return tempSummary;
 		}
 		
-		// If sorting has finished, select any box for delivery
-		if (endSorting) {
+		// If sorting has finished, no box will receive more mail, so select any box for delivery
+		if (sorting != null && sorting.isDrained()) {
 			for (Summary summary : summaries) {
 				if (summary.numItems > 0) {
-					return summary.identifier;
+					return summary;
 				}
 			}
 		}
 		
 		// If it gets to here, no boxes are ready for selection
-		throw new NoBoxReadyException();
-	}
-	
-	public void reset() {
-		count = 0;
-		endSorting = false;
+		return null;
 	}
 }
\ No newline at end of file
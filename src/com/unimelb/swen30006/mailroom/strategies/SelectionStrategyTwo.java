@@ -0,0 +1,135 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+
+package com.unimelb.swen30006.mailroom.strategies;
+
+import com.unimelb.swen30006.mailroom.MailItem.MailPriority;
+import com.unimelb.swen30006.mailroom.SelectionStrategy;
+import com.unimelb.swen30006.mailroom.SimulationClock;
+import com.unimelb.swen30006.mailroom.SlotStorage;
+import com.unimelb.swen30006.mailroom.SortingProgress;
+import com.unimelb.swen30006.mailroom.StorageBox.Summary;
+import com.unimelb.swen30006.mailroom.exceptions.NoBoxReadyException;
+
+/**
+ * Selection strategy that sends out the most urgent box first. The urgency of a box
+ * weighs each item by its priority and adds how long the oldest item has waited, so
+ * a box holding Urgent mail, or mail that has waited long, leaves before it is full.
+ * Otherwise boxes wait as in SelectionStrategyOne, until they are full, all boxes are
+ * being used or sorting has finished, and the most urgent of the boxes ready goes first.
+ * Age changes with every tick, so the strategy must be polled.
+ */
+public class SelectionStrategyTwo implements SelectionStrategy {
+	// How much each item adds to the urgency of its box, indexed by priority
+	private static final int[] PRIORITY_WEIGHTS = new int[MailPriority.values().length];
+	static {
+		PRIORITY_WEIGHTS[MailPriority.Low.ordinal()] = 1;
+		PRIORITY_WEIGHTS[MailPriority.Medium.ordinal()] = 2;
+		PRIORITY_WEIGHTS[MailPriority.High.ordinal()] = 4;
+		PRIORITY_WEIGHTS[MailPriority.Urgent.ordinal()] = 16;
+	}
+	// How much each tick the oldest item has waited adds to the urgency of its box
+	private static final int AGE_WEIGHT = 1;
+	// The urgency at which a box is sent out before it is full, unless given
+	private static final long DEFAULT_DISPATCH_URGENCY = 64;
+	
+	// The progress of the sorter, which says when sorting has finished
+	private SortingProgress sorting;
+	// The clock the age of mail is measured against
+	private SimulationClock clock;
+	// Simulation variables for selection
+	private int MAX_BOXES;
+	private long dispatchUrgency;
+	
+	public SelectionStrategyTwo(int MAX_BOXES){
+		this(MAX_BOXES, DEFAULT_DISPATCH_URGENCY);
+	}
+	
+	public SelectionStrategyTwo(int MAX_BOXES, long dispatchUrgency){
+		this.MAX_BOXES = MAX_BOXES;
+		this.dispatchUrgency = dispatchUrgency;
+	}
+	
+	@Override
+	public void trackSorting(SortingProgress progress) {
+		this.sorting = progress;
+	}
+	
+	@Override
+	public void trackTime(SimulationClock clock) {
+		this.clock = clock;
+	}
+	
+	@Override
+	public String selectNextDelivery(Summary[] summaries) throws NoBoxReadyException {
+		Summary selected = select(summaries);
+		if (selected == null) {
+			throw new NoBoxReadyException();
+		}
+		return selected.identifier;
+	}
+	
+	@Override
+	public int selectNextSlot(Summary[] summaries) throws NoBoxReadyException {
+		Summary selected = select(summaries);
+		if (selected == null) {
+			throw new NoBoxReadyException();
+		}
+		return selected.slot;
+	}
+	
+	@Override
+	public String trySelectNextDelivery(Summary[] summaries) {
+		Summary selected = select(summaries);
+		return (selected == null) ? null : selected.identifier;
+	}
+	
+	@Override
+	public int trySelectNextSlot(Summary[] summaries) {
+		Summary selected = select(summaries);
+		return (selected == null) ? SlotStorage.NO_SLOT : selected.slot;
+	}
+	
+	/**
+	 * Measure how urgently a box should be delivered
+	 * @param summary the summary of the box
+	 * @param now the current tick
+	 * @return the urgency of the box, higher being more urgent
+	 */
+	public static long urgency(Summary summary, long now) {
+		long urgency = 0;
+		for (MailPriority priority : MailPriority.values()) {
+			urgency += PRIORITY_WEIGHTS[priority.ordinal()] * summary.numItems(priority);
+		}
+		if (summary.numItems > 0) {
+			urgency += AGE_WEIGHT * Math.max(0, now - summary.oldestArrival);
+		}
+		return urgency;
+	}
+	
+	/**
+	 * Select the summary of the most urgent box that is ready to deliver
+	 * @param summaries the summaries of the storage boxes
+	 * @return the summary of the box to deliver, or null if no box is ready
+	 */
+	private Summary select(Summary[] summaries) {
+		long now = (clock == null) ? 0 : clock.now();
+		// Every box is ready once all boxes are being used or no more mail will arrive
+		boolean allReady = summaries.length == MAX_BOXES || (sorting != null && sorting.isDrained());
+		Summary selected = null;
+		long selectedUrgency = -1;
+		for (Summary summary : summaries) {
+			if (summary.numItems == 0) {
+				continue;
+			}
+			long urgency = urgency(summary, now);
+			boolean ready = allReady || summary.remainingUnits == 0 || urgency >= dispatchUrgency;
+			if (ready && urgency > selectedUrgency) {
+				selected = summary;
+				selectedUrgency = urgency;
+			}
+		}
+		return selected;
+	}
+}
@@ -10,6 +10,7 @@ import java.util.UUID;
 import com.unimelb.swen30006.mailroom.MailItem;
 import com.unimelb.swen30006.mailroom.MailStorage;
 import com.unimelb.swen30006.mailroom.Simulation;
+import com.unimelb.swen30006.mailroom.SlotStorage;
 import com.unimelb.swen30006.mailroom.SortingStrategy;
 import com.unimelb.swen30006.mailroom.StorageBox;
 import com.unimelb.swen30006.mailroom.StorageBox.Summary;
@@ -25,6 +26,8 @@ public class SortingStrategyOne implements SortingStrategy{
 	private int count = 0;
 	// Simulation variables
 	private int MAX_BOXES,MAX_FLOOR,MIN_FLOOR;
+	// Remaining units of each box while a batch is assigned, reused between batches
+	private int[] batchRemaining = new int[0];
 	
 	// Constructor for needed Simulation variables
 	public SortingStrategyOne(int MAX_BOXES, int MAX_FLOOR, int MIN_FLOOR){
@@ -35,9 +38,18 @@ public class SortingStrategyOne implements SortingStrategy{
 	
 	@Override
 	public String assignStorage(MailItem item, MailStorage storage) throws MailOverflowException {
+		String identifier = tryAssignStorage(item, storage);
+		if (identifier == null) {
+			throw new MailOverflowException();
+		}
+		return identifier;
+	}
+
+	@Override
+	public String tryAssignStorage(MailItem item, MailStorage storage) {
         StorageBox.Summary[] available = storage.retrieveSummaries();
         // Calculate 'perfect' box number
-        int perfectBox = (int)((item.floor*MAX_BOXES)/(MAX_FLOOR+Math.abs(MIN_FLOOR)));
+        int perfectBox = perfectBox(item);
         // If mailItem fits, place in box
         if (available.length >= perfectBox+1 && available[perfectBox].remainingUnits >= item.size){
         	return available[perfectBox].identifier;
@@ -47,13 +59,105 @@ public class SortingStrategyOne implements SortingStrategy{
         return genIdentifier(storage,count);
 	}
 
+	@Override
+	public int assignSlot(MailItem item, SlotStorage storage) throws MailOverflowException {
+		int slot = tryAssignSlot(item, storage);
+		if (slot == SlotStorage.NO_SLOT) {
+			throw new MailOverflowException();
+		}
+		return slot;
+	}
+
+	@Override
+	public int tryAssignSlot(MailItem item, SlotStorage storage) {
+        StorageBox.Summary[] available = storage.retrieveSummaries();
+        // Calculate 'perfect' box number
+        int perfectBox = perfectBox(item);
+        // If mailItem fits, place in box
+        if (available.length >= perfectBox+1 && available[perfectBox].remainingUnits >= item.size){
+        	return available[perfectBox].slot;
+        }
+        // Otherwise, create a new box in the next free slot
+        count += 1;
+        return storage.tryCreateSlot();
+	}
+
+	@Override
+	public int assignBatch(MailItem[] items, int offset, int length, MailStorage storage, String[] identifiers) {
+		StorageBox.Summary[] available = storage.retrieveSummaries();
+		int[] remaining = remainingUnits(available);
+		for (int i = 0; i < length; i++) {
+			MailItem item = items[offset + i];
+			int perfectBox = perfectBox(item);
+			// If mailItem fits, place in box, leaving less room for the rest of the batch
+			if (available.length >= perfectBox+1 && remaining[perfectBox] >= item.size){
+				remaining[perfectBox] -= item.size;
+				identifiers[offset + i] = available[perfectBox].identifier;
+				continue;
+			}
+			// A new box changes the order of storage, so only the first item of a batch may create one
+			if (i > 0) {
+				return i;
+			}
+			identifiers[offset] = genIdentifier(storage,count);
+			return (identifiers[offset] == null) ? 0 : 1;
+		}
+		return length;
+	}
+
+	@Override
+	public int assignSlotBatch(MailItem[] items, int offset, int length, SlotStorage storage, int[] slots) {
+		StorageBox.Summary[] available = storage.retrieveSummaries();
+		int[] remaining = remainingUnits(available);
+		for (int i = 0; i < length; i++) {
+			MailItem item = items[offset + i];
+			int perfectBox = perfectBox(item);
+			// If mailItem fits, place in box, leaving less room for the rest of the batch
+			if (available.length >= perfectBox+1 && remaining[perfectBox] >= item.size){
+				remaining[perfectBox] -= item.size;
+				slots[offset + i] = available[perfectBox].slot;
+				continue;
+			}
+			// A new box changes the order of storage, so only the first item of a batch may create one
+			if (i > 0) {
+				return i;
+			}
+			count += 1;
+			slots[offset] = storage.tryCreateSlot();
+			return (slots[offset] == SlotStorage.NO_SLOT) ? 0 : 1;
+		}
+		return length;
+	}
+
 	/**
-	 * Generate the identifier according to number of boxes created
+	 * Calculate the 'perfect' box number of an item
 	 */
-	public String genIdentifier(MailStorage storage, int id) throws MailOverflowException {
+	private int perfectBox(MailItem item) {
+		return (int)((item.floor*MAX_BOXES)/(MAX_FLOOR+Math.abs(MIN_FLOOR)));
+	}
+
+	/**
+	 * Copy the remaining units of each box, to be used up as a batch is assigned
+	 */
+	private int[] remainingUnits(StorageBox.Summary[] available) {
+		if (batchRemaining.length < available.length) {
+			batchRemaining = new int[available.length];
+		}
+		for (int i = 0; i < available.length; i++) {
+			batchRemaining[i] = available[i].remainingUnits;
+		}
+		return batchRemaining;
+	}
+
+	/**
+	 * Generate the identifier according to number of boxes created, or null if there is no room for a new box
+	 */
+	public String genIdentifier(MailStorage storage, int id) {
 		count += 1;
 		try {
-			storage.createBox(String.valueOf(id));
+			if (!storage.tryCreateBox(String.valueOf(id))) {
+				return null;
+			}
 			return String.valueOf(id);
 		} catch (DuplicateIdentifierException e) {
 			System.out.println(e);
@@ -61,11 +165,4 @@ public class SortingStrategyOne implements SortingStrategy{
 		}
 		return null;
 	}
-	
-	/**
-	 * Reset instance variables
-	 */
-	public void reset() {
-		count = 0;
-	}
 }
@@ -0,0 +1,80 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+
+package com.unimelb.swen30006.mailroom.strategies;
+
+import com.unimelb.swen30006.mailroom.BoxIndex;
+import com.unimelb.swen30006.mailroom.MailItem;
+import com.unimelb.swen30006.mailroom.MailStorage;
+import com.unimelb.swen30006.mailroom.SlotStorage;
+import com.unimelb.swen30006.mailroom.SortingStrategy;
+import com.unimelb.swen30006.mailroom.exceptions.DuplicateIdentifierException;
+import com.unimelb.swen30006.mailroom.exceptions.MailOverflowException;
+
+/**
+ * A best fit sorting strategy, which places each item in the fullest box it still fits in whose floors are close
+ * enough, and otherwise starts a new box. Boxes are found through the storage unit's capacity index, so sorting
+ * takes O(log n) time for n boxes, and the strategy keeps no state of its own beyond naming new boxes.
+ */
+public class SortingStrategyThree implements SortingStrategy{
+	// How far below the lowest floor of a box an item may be addressed, as in SortingStrategyTwo
+	private static final int BUFFER_SIZE = 25;
+	// Count for number of created boxes, for identifier ID
+	private int count = 0;
+
+	@Override
+	public String assignStorage(MailItem item, MailStorage storage) throws MailOverflowException {
+		String identifier = tryAssignStorage(item, storage);
+		if (identifier == null) {
+			throw new MailOverflowException();
+		}
+		return identifier;
+	}
+
+	@Override
+	public int assignSlot(MailItem item, SlotStorage storage) throws MailOverflowException {
+		int slot = tryAssignSlot(item, storage);
+		if (slot == SlotStorage.NO_SLOT) {
+			throw new MailOverflowException();
+		}
+		return slot;
+	}
+
+	@Override
+	public String tryAssignStorage(MailItem item, MailStorage storage) {
+		BoxIndex.Entry fitting = storage.findSmallestFit(item.size, item.floor - BUFFER_SIZE);
+		if (fitting != null) {
+			return fitting.identifier;
+		}
+		// Otherwise start a new box, or wait for a delivery if storage is full
+		String identifier = String.valueOf(count);
+		try {
+			if (!storage.tryCreateBox(identifier)) {
+				return null;
+			}
+		} catch (DuplicateIdentifierException e) {
+			System.out.println(e);
+			System.exit(0);
+		}
+		count += 1;
+		return identifier;
+	}
+
+	@Override
+	public int tryAssignSlot(MailItem item, SlotStorage storage) {
+		BoxIndex.Entry fitting = storage.findSmallestFit(item.size, item.floor - BUFFER_SIZE);
+		if (fitting != null) {
+			return fitting.slot;
+		}
+		return storage.tryCreateSlot();
+	}
+
+	/**
+	 * The same storage always gets the same answer, as boxes are only named once they are created
+	 */
+	@Override
+	public boolean requiresPolling() {
+		return false;
+	}
+}
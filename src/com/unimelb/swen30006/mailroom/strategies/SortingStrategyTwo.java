@@ -7,11 +7,13 @@ package com.unimelb.swen30006.mailroom.strategies;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.UUID;
 
 import com.unimelb.swen30006.mailroom.MailItem;
 import com.unimelb.swen30006.mailroom.MailStorage;
 import com.unimelb.swen30006.mailroom.Simulation;
+import com.unimelb.swen30006.mailroom.SlotStorage;
 import com.unimelb.swen30006.mailroom.SortingStrategy;
 import com.unimelb.swen30006.mailroom.StorageBox;
 import com.unimelb.swen30006.mailroom.StorageBox.Summary;
@@ -27,18 +29,35 @@ public class SortingStrategyTwo implements SortingStrategy{
 	private int MAX_BOXES, MAX_MAIL_UNITS;
 	// Buffer size used for maxFloor
 	private static final int BUFFER_SIZE = 25;
+	// The boxes assigned to each item of a batch, reused between batches
+	private DetailedSummary[] batchAssigned = new DetailedSummary[0];
 	
 	// Class containing additional information
 	public class DetailedSummary{
 		private String identifier;
+		private int slot;
 		private int remainingUnits;
 		private int maxFloor;
+		// The box in storage, to check it has not been taken for delivery
+		private StorageBox box;
 		// Constructor
 		public DetailedSummary(String identifier, int remainingUnits, int maxFloor){
+			this(identifier, SlotStorage.NO_SLOT, remainingUnits, maxFloor);
+		}
+		// Constructor for boxes in slot keyed storage
+		public DetailedSummary(String identifier, int slot, int remainingUnits, int maxFloor){
 			this.identifier = identifier;
+			this.slot = slot;
 			this.remainingUnits = remainingUnits;
 			this.maxFloor = maxFloor;
 		}
+		// Check if this describes the same box as a storage summary
+		private boolean describes(Summary summary){
+			if (identifier == null) {
+				return slot == summary.slot;
+			}
+			return identifier.equals(summary.identifier);
+		}
 	}
 	
 	/**
@@ -51,44 +70,158 @@ public class SortingStrategyTwo implements SortingStrategy{
 	
 	@Override
 	public String assignStorage(MailItem item, MailStorage storage) throws MailOverflowException {
+		String identifier = tryAssignStorage(item, storage);
+		if (identifier == null) {
+			throw new MailOverflowException();
+		}
+		return identifier;
+	}
+	
+	@Override
+	public int assignSlot(MailItem item, SlotStorage storage) throws MailOverflowException {
+		int slot = tryAssignSlot(item, storage);
+		if (slot == SlotStorage.NO_SLOT) {
+			throw new MailOverflowException();
+		}
+		return slot;
+	}
+	
+	@Override
+	public String tryAssignStorage(MailItem item, MailStorage storage) {
+		DetailedSummary assigned = assign(item, storage, null);
+		return (assigned == null) ? null : assigned.identifier;
+	}
+	
+	@Override
+	public int tryAssignSlot(MailItem item, SlotStorage storage) {
+		DetailedSummary assigned = assign(item, storage, storage);
+		return (assigned == null) ? SlotStorage.NO_SLOT : assigned.slot;
+	}
+	
+	/**
+	 * Assign a box for the item, either by identifier or, if slot storage is given, by slot.
+	 * Returns null if there is no room for a new box.
+	 */
+	private DetailedSummary assign(MailItem item, MailStorage storage, SlotStorage slots) {
 		StorageBox.Summary[] summary = storage.retrieveSummaries();	
-		for (DetailedSummary summaryItem : detailedSummaryList){
+		DetailedSummary fitting = findFit(item, storage, slots);
+		if (fitting != null) {
+			return updateBox(fitting,item);
+		}
+		// If no box available, create a new box. This always works, as selection sends a box for delivery
+        // when all boxes are being used.
+		return createBox(storage,slots,summary,count,MAX_MAIL_UNITS-item.size,item.floor);
+	}
+
+	/**
+	 * Assign boxes for a batch of items. Existing boxes are tracked by the detailed summaries, so storage is
+	 * only looked at when a box is created, which must be the first item of a batch so storage is up to date.
+	 * Returns the number of leading items assigned.
+	 */
+	private int assignBatch(MailItem[] items, int offset, int length, MailStorage storage, SlotStorage slots,
+			DetailedSummary[] assigned) {
+		for (int i = 0; i < length; i++) {
+			MailItem item = items[offset + i];
+			DetailedSummary fitting = findFit(item, storage, slots);
+			if (fitting != null) {
+				assigned[i] = updateBox(fitting,item);
+				continue;
+			}
+			if (i > 0) {
+				return i;
+			}
+			assigned[0] = createBox(storage,slots,storage.retrieveSummaries(),count,MAX_MAIL_UNITS-item.size,item.floor);
+			return (assigned[0] == null) ? 0 : 1;
+		}
+		return length;
+	}
+
+	@Override
+	public int assignBatch(MailItem[] items, int offset, int length, MailStorage storage, String[] identifiers) {
+		DetailedSummary[] assigned = batchBuffer(length);
+		int n = assignBatch(items, offset, length, storage, null, assigned);
+		for (int i = 0; i < n; i++) {
+			identifiers[offset + i] = assigned[i].identifier;
+		}
+		return n;
+	}
+
+	@Override
+	public int assignSlotBatch(MailItem[] items, int offset, int length, SlotStorage storage, int[] slots) {
+		DetailedSummary[] assigned = batchBuffer(length);
+		int n = assignBatch(items, offset, length, storage, storage, assigned);
+		for (int i = 0; i < n; i++) {
+			slots[offset + i] = assigned[i].slot;
+		}
+		return n;
+	}
+
+	/**
+	 * Find the first box that the item fits in, whose floors are close enough to the item's floor. Boxes that
+	 * selection has already taken for delivery, which happens when several items are sorted between deliveries,
+	 * are forgotten rather than assigned.
+	 */
+	private DetailedSummary findFit(MailItem item, MailStorage storage, SlotStorage slots) {
+		Iterator<DetailedSummary> summaries = detailedSummaryList.iterator();
+		while (summaries.hasNext()){
+			DetailedSummary summaryItem = summaries.next();
 			// Find first box that item.floor is less than maxFloor in summmary
 			if (item.size <= summaryItem.remainingUnits && item.floor <= summaryItem.maxFloor+BUFFER_SIZE){
-				return updateBox(summaryItem,item);
+				if (isStored(summaryItem, storage, slots)) {
+					return summaryItem;
+				}
+				summaries.remove();
 			}
 		}
-		// If no box available, create a new box. This always works, as selection sends a box for delivery
-        // when all boxes are being used.
-		return createBox(storage,summary,count,MAX_MAIL_UNITS-item.size,item.floor);
+		return null;
+	}
+
+	/**
+	 * Check the box described by a detailed summary is still in storage
+	 */
+	private boolean isStored(DetailedSummary summaryItem, MailStorage storage, SlotStorage slots) {
+		StorageBox stored = (slots != null) ? slots.findSlot(summaryItem.slot) : storage.findBox(summaryItem.identifier);
+		return stored != null && stored == summaryItem.box;
+	}
+
+	/**
+	 * Retrieve a buffer for the boxes assigned in a batch, reused between batches
+	 */
+	private DetailedSummary[] batchBuffer(int length) {
+		if (batchAssigned.length < length) {
+			batchAssigned = new DetailedSummary[length];
+		}
+		return batchAssigned;
 	}
 	
 	/**
-	 *  Update detailed summary as well as returning identifier
+	 *  Update detailed summary as well as returning the box details
 	 */
-	public String updateBox(DetailedSummary summaryItem, MailItem item){
+	public DetailedSummary updateBox(DetailedSummary summaryItem, MailItem item){
 		// Calculate remainingUnits
 		int remainingUnits = summaryItem.remainingUnits - item.size;
 		// If box is full, selection will deliver this box, thus needs to removed from
 		// detailedSummary
 		if (remainingUnits == 0){
 			detailedSummaryList.remove(summaryItem);
-			return String.valueOf(summaryItem.identifier);
+			return summaryItem;
 		}
-		// Otherwise, update detailedSummary and return identifier
-		int maxFloor = Math.min(item.floor, summaryItem.maxFloor);
-		int index = detailedSummaryList.indexOf(summaryItem);
-		detailedSummaryList.set(index, new DetailedSummary(summaryItem.identifier,remainingUnits, maxFloor));
-		return String.valueOf(summaryItem.identifier);
+		// Otherwise, update detailedSummary in place and return the box details
+		summaryItem.remainingUnits = remainingUnits;
+		summaryItem.maxFloor = Math.min(item.floor, summaryItem.maxFloor);
+		return summaryItem;
 	}
 	
 	/**
-	 * Creates a new box, updating detailedSummary
+	 * Creates a new box, updating detailedSummary. If slot storage is given the box is created
+	 * in a free slot, otherwise it is named from id. Returns null if there is no room for a new box.
 	 */
-	public String createBox(MailStorage storage,StorageBox.Summary[] summary, int id, int remainingUnits, int maxFloor) throws MailOverflowException{
+	public DetailedSummary createBox(MailStorage storage, SlotStorage slots, StorageBox.Summary[] summary, int id,
+			int remainingUnits, int maxFloor) {
 		// Increment number of new boxes
 		count += 1;
-		detailedSummaryList.add(new DetailedSummary(String.valueOf(id), remainingUnits, maxFloor));
+		DetailedSummary created = new DetailedSummary(slots == null ? String.valueOf(id) : null, remainingUnits, maxFloor);
+		detailedSummaryList.add(created);
 		// One all boxes are filled, selection will remove the box with lowest remainingUnits, thus
 		// detailedSummary also needs to be update
 		if (detailedSummaryList.size() == MAX_BOXES) {
@@ -104,24 +237,37 @@ public class SortingStrategyTwo implements SortingStrategy{
 			// Find summary in detailedSummaryList, and remove it
 			DetailedSummary removeDetSummary;
 			for (DetailedSummary detSummaryItem : detailedSummaryList){
-				if (detSummaryItem.identifier.equals(removeSummary.identifier)) {
+				if (detSummaryItem.describes(removeSummary)) {
 					detailedSummaryList.remove(detSummaryItem);
 					break;
 				}
 			}
 		}
-		// Generate the new identifier
-		return genIdentifier(storage,id);
+		// Generate the new identifier, or take a slot
+		if (slots != null) {
+			created.slot = slots.tryCreateSlot();
+			if (created.slot == SlotStorage.NO_SLOT) {
+				return null;
+			}
+			created.box = slots.findSlot(created.slot);
+		} else if (genIdentifier(storage,id) == null) {
+			return null;
+		} else {
+			created.box = storage.findBox(created.identifier);
+		}
+		return created;
 	}
 	
 	/**
-	 * Generate a new identifier with respect to id
+	 * Generate a new identifier with respect to id, or null if there is no room for a new box
 	 */
-	public String genIdentifier(MailStorage storage, int id) throws MailOverflowException {
+	public String genIdentifier(MailStorage storage, int id) {
 		// If we get to here without returning there is no storage box
 		// appropriate so let's try create one
 		try {
-			storage.createBox(String.valueOf(id));
+			if (!storage.tryCreateBox(String.valueOf(id))) {
+				return null;
+			}
 			return String.valueOf(id);
 		} catch (DuplicateIdentifierException e) {
 			System.out.println(e);
@@ -129,12 +275,4 @@ public class SortingStrategyTwo implements SortingStrategy{
 		}
 		return null;
 	}
-
-	/**
-	 * Reset instance variables for every Simulation loop
-	 */
-	public void reset() {
-		detailedSummaryList = new ArrayList<DetailedSummary>();
-		count = 0;
-	}
 }
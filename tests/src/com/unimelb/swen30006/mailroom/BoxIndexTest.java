@@ -0,0 +1,138 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+import com.unimelb.swen30006.mailroom.samples.ConcurrentMailStorage;
+import com.unimelb.swen30006.mailroom.samples.SimpleMailStorage;
+import com.unimelb.swen30006.mailroom.samples.SlotMailStorage;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives each storage unit through random boxes being created and delivered and mail being added, polled and taken
+ * out by floor, and checks after every change that the index answers as a scan of every box would.
+ */
+public class BoxIndexTest {
+
+    private static final int MAX_BOXES = 30;
+    private static final int BOX_SIZE = 20;
+    private static final int FLOORS = 30;
+    private static final int CHANGES = 20000;
+
+    @Test
+    public void simpleStorageMatchesAScan() throws Exception {
+        check(new SimpleMailStorage(MAX_BOXES, BOX_SIZE), 1);
+    }
+
+    @Test
+    public void packedSimpleStorageMatchesAScan() throws Exception {
+        check(new SimpleMailStorage(MAX_BOXES, BOX_SIZE, true), 2);
+    }
+
+    @Test
+    public void slotStorageMatchesAScan() throws Exception {
+        check(new SlotMailStorage(MAX_BOXES, BOX_SIZE), 3);
+    }
+
+    @Test
+    public void packedSlotStorageMatchesAScan() throws Exception {
+        check(new SlotMailStorage(MAX_BOXES, BOX_SIZE, true), 4);
+    }
+
+    @Test
+    public void concurrentStorageMatchesAScan() throws Exception {
+        check(new ConcurrentMailStorage(MAX_BOXES, BOX_SIZE), 5);
+    }
+
+    /**
+     * Make random changes to storage, comparing the index with a scan after each
+     * @param storage the storage to change, which must start empty
+     * @param seed the seed for the changes
+     */
+    private static void check(MailStorage storage, long seed) throws Exception {
+        Random random = new Random(seed);
+        int created = 0;
+        for (int change = 0; change < CHANGES; change++) {
+            StorageBox.Summary[] summaries = storage.retrieveSummaries();
+            int kind = random.nextInt(10);
+            if (kind < 1 && !storage.isFull()) {
+                storage.createBox("box" + created++);
+            } else if (kind < 2 && summaries.length > 0) {
+                storage.deliverBox(summaries[random.nextInt(summaries.length)].identifier);
+            } else if (summaries.length > 0) {
+                StorageBox box = storage.findBox(summaries[random.nextInt(summaries.length)].identifier);
+                if (kind < 7) {
+                    box.offerItem(new MailItem(MailItem.MailType.Letter, MailItem.MailPriority.Low,
+                            random.nextInt(FLOORS), "Mat", 1 + random.nextInt(4)));
+                } else if (kind < 9) {
+                    box.pollItem();
+                } else if (!box.isEmpty()) {
+                    int[] floors = box.floors();
+                    box.removeItemsForFloor(floors[random.nextInt(floors.length)]);
+                }
+            }
+
+            for (int size = 1; size <= 5; size++) {
+                int lowestFloor = random.nextInt(FLOORS + 2);
+                assertSmallestFit(storage, size, lowestFloor, "change " + change);
+            }
+            assertFullest(storage, "change " + change);
+        }
+    }
+
+    /**
+     * Check the index finds a box with the least room that fits an item, and the lowest floor among those
+     * @param storage the storage indexed
+     * @param size the size of the item
+     * @param lowestFloor the lowest floor the box may hold mail for
+     * @param when the change being checked, for failure messages
+     */
+    private static void assertSmallestFit(MailStorage storage, int size, int lowestFloor, String when)
+            throws Exception {
+        StorageBox.Summary best = null;
+        int bestFloor = 0;
+        for (StorageBox.Summary summary : storage.retrieveSummaries()) {
+            StorageBox box = storage.findBox(summary.identifier);
+            int floor = box.isEmpty() ? Integer.MAX_VALUE : box.lowestFloor();
+            if (summary.remainingUnits < size || floor < lowestFloor) {
+                continue;
+            }
+            if (best == null || summary.remainingUnits < best.remainingUnits
+                    || summary.remainingUnits == best.remainingUnits && floor < bestFloor) {
+                best = summary;
+                bestFloor = floor;
+            }
+        }
+        BoxIndex.Entry found = storage.findSmallestFit(size, lowestFloor);
+        if (best == null) {
+            assertNull(when, found);
+        } else {
+            assertNotNull(when, found);
+            assertEquals(when, best.remainingUnits, found.remainingUnits());
+            assertEquals(when, bestFloor, found.lowestFloor());
+        }
+    }
+
+    /**
+     * Check the index finds a box with the least room left
+     * @param storage the storage indexed
+     * @param when the change being checked, for failure messages
+     */
+    private static void assertFullest(MailStorage storage, String when) {
+        int fewest = Integer.MAX_VALUE;
+        for (StorageBox.Summary summary : storage.retrieveSummaries()) {
+            fewest = Math.min(fewest, summary.remainingUnits);
+        }
+        BoxIndex.Entry found = storage.findFullestBox();
+        if (fewest == Integer.MAX_VALUE) {
+            assertNull(when, found);
+        } else {
+            assertNotNull(when, found);
+            assertEquals(when, fewest, found.remainingUnits());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the queue keeps order and its bounds on one thread, and hands every element over exactly once when many
+ * threads offer and poll at once.
+ */
+public class HandoffQueueTest {
+
+    @Test
+    public void keepsOrderAcrossLapsOfTheRing() {
+        HandoffQueue<Integer> queue = new HandoffQueue<Integer>(5);
+        assertEquals(8, queue.capacity());
+        int offered = 0;
+        int polled = 0;
+        for (int lap = 0; lap < 10; lap++) {
+            while (queue.offer(offered)) {
+                offered++;
+            }
+            assertEquals(queue.capacity(), queue.size());
+            for (int i = 0; i < 5; i++) {
+                assertEquals(Integer.valueOf(polled++), queue.poll());
+            }
+        }
+        Integer element;
+        while ((element = queue.poll()) != null) {
+            assertEquals(Integer.valueOf(polled++), element);
+        }
+        assertEquals(offered, polled);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refusesAnEmptyCapacity() {
+        new HandoffQueue<Integer>(0);
+    }
+
+    @Test
+    public void handsEveryElementOverOnceAcrossThreads() throws InterruptedException {
+        final int producers = 3;
+        final int consumers = 3;
+        final int perProducer = 100000;
+        final HandoffQueue<Long> queue = new HandoffQueue<Long>(64);
+        final AtomicLong taken = new AtomicLong();
+        final AtomicLong total = new AtomicLong();
+
+        Thread[] threads = new Thread[producers + consumers];
+        for (int p = 0; p < producers; p++) {
+            final long base = (long) p * perProducer;
+            threads[p] = new Thread(() -> {
+                for (long i = base; i < base + perProducer; i++) {
+                    while (!queue.offer(i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+        }
+        for (int c = 0; c < consumers; c++) {
+            threads[producers + c] = new Thread(() -> {
+                while (taken.get() < (long) producers * perProducer) {
+                    Long element = queue.poll();
+                    if (element == null) {
+                        Thread.yield();
+                    } else {
+                        total.addAndGet(element);
+                        taken.incrementAndGet();
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long n = (long) producers * perProducer;
+        assertEquals(n, taken.get());
+        assertEquals(n * (n - 1) / 2, total.get());
+        assertNull(queue.poll());
+    }
+}
@@ -0,0 +1,114 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that every field survives packing and unpacking, at the edges of each field's range as well as at random,
+ * and that mail outside those ranges is refused rather than corrupted.
+ */
+public class PackedMailItemTest {
+
+    private static final MailItem.MailType[] TYPES = MailItem.MailType.values();
+    private static final MailItem.MailPriority[] PRIORITIES = MailItem.MailPriority.values();
+
+    @Test
+    public void roundTripsEveryTypeAndPriority() {
+        for (MailItem.MailType type : TYPES) {
+            for (MailItem.MailPriority priority : PRIORITIES) {
+                assertRoundTrip(new MailItem(type, priority, 3, PackedMailItem.ADDRESSEE, 2, 10), 12);
+            }
+        }
+    }
+
+    @Test
+    public void roundTripsTheEdgesOfEachField() {
+        int[] floors = {PackedMailItem.MIN_FLOOR, -1, 0, 1, PackedMailItem.MAX_FLOOR};
+        int[] sizes = {0, 1, PackedMailItem.MAX_SIZE};
+        long[] arrivals = {0, 1, PackedMailItem.MAX_ARRIVAL};
+        long[] delays = {0, 1, PackedMailItem.MAX_DELAY};
+        for (int floor : floors) {
+            for (int size : sizes) {
+                for (long arrival : arrivals) {
+                    for (long delay : delays) {
+                        MailItem item = new MailItem(TYPES[TYPES.length - 1], PRIORITIES[PRIORITIES.length - 1],
+                                floor, PackedMailItem.ADDRESSEE, size, arrival);
+                        assertRoundTrip(item, arrival + delay);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void roundTripsRandomItems() {
+        Random random = new Random(30006);
+        for (int i = 0; i < 100000; i++) {
+            int floor = PackedMailItem.MIN_FLOOR
+                    + random.nextInt(PackedMailItem.MAX_FLOOR - PackedMailItem.MIN_FLOOR + 1);
+            long arrival = (long) (random.nextDouble() * PackedMailItem.MAX_ARRIVAL);
+            long delay = random.nextInt((int) PackedMailItem.MAX_DELAY + 1);
+            MailItem item = new MailItem(TYPES[random.nextInt(TYPES.length)],
+                    PRIORITIES[random.nextInt(PRIORITIES.length)], floor, PackedMailItem.ADDRESSEE,
+                    random.nextInt(PackedMailItem.MAX_SIZE + 1), arrival);
+            assertRoundTrip(item, arrival + delay);
+        }
+    }
+
+    @Test
+    public void refusesMailOutsideTheRanges() {
+        MailItem.MailType type = TYPES[0];
+        MailItem.MailPriority priority = PRIORITIES[0];
+        String addressee = PackedMailItem.ADDRESSEE;
+        assertFalse(PackedMailItem.canPack(new MailItem(type, priority, 0, "Someone else", 1, 0), 0));
+        assertFalse(PackedMailItem.canPack(
+                new MailItem(type, priority, PackedMailItem.MIN_FLOOR - 1, addressee, 1, 0), 0));
+        assertFalse(PackedMailItem.canPack(
+                new MailItem(type, priority, PackedMailItem.MAX_FLOOR + 1, addressee, 1, 0), 0));
+        assertFalse(PackedMailItem.canPack(new MailItem(type, priority, 0, addressee, -1, 0), 0));
+        assertFalse(PackedMailItem.canPack(
+                new MailItem(type, priority, 0, addressee, PackedMailItem.MAX_SIZE + 1, 0), 0));
+        assertFalse(PackedMailItem.canPack(new MailItem(type, priority, 0, addressee, 1, -1), 0));
+        assertFalse(PackedMailItem.canPack(
+                new MailItem(type, priority, 0, addressee, 1, PackedMailItem.MAX_ARRIVAL + 1), 0));
+        assertFalse(PackedMailItem.canPack(new MailItem(type, priority, 0, addressee, 1, 5), 4));
+        assertFalse(PackedMailItem.canPack(
+                new MailItem(type, priority, 0, addressee, 1, 5), 5 + PackedMailItem.MAX_DELAY + 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void packingMailOutsideTheRangesThrows() {
+        PackedMailItem.pack(TYPES[0], PRIORITIES[0], PackedMailItem.MAX_FLOOR + 1, 1, 0, 0);
+    }
+
+    /**
+     * Pack an item and check every field reads back unchanged, both from the packed word and the rebuilt item
+     * @param item the item, which must be packable
+     * @param storedTick the tick the item is stored at
+     */
+    private static void assertRoundTrip(MailItem item, long storedTick) {
+        assertTrue(item.toString(), PackedMailItem.canPack(item, storedTick));
+        long packed = PackedMailItem.pack(item, storedTick);
+        assertTrue("the top bit is reserved", packed >= 0);
+        assertEquals(item.floor, PackedMailItem.floor(packed));
+        assertEquals(item.size, PackedMailItem.size(packed));
+        assertEquals(item.packageType, PackedMailItem.type(packed));
+        assertEquals(item.priority, PackedMailItem.priority(packed));
+        assertEquals(item.arrivalTime, PackedMailItem.arrivalTime(packed));
+        assertEquals(storedTick, PackedMailItem.storedTick(packed));
+
+        MailItem unpacked = PackedMailItem.unpack(packed);
+        assertEquals(item.floor, unpacked.floor);
+        assertEquals(item.size, unpacked.size);
+        assertEquals(item.packageType, unpacked.packageType);
+        assertEquals(item.priority, unpacked.priority);
+        assertEquals(item.arrivalTime, unpacked.arrivalTime);
+        assertEquals(item.adressee, unpacked.adressee);
+    }
+}
@@ -0,0 +1,103 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks statistics recorded in parts and merged against the same statistics computed directly from every value.
+ */
+public class StreamingStatisticTest {
+
+    private static final double[] PERCENTILES = {1, 25, 50, 75, 95, 99, 100};
+
+    @Test
+    public void mergedPartsMatchDirectComputation() {
+        Random random = new Random(30006);
+        int[] values = new int[50000];
+        for (int i = 0; i < values.length; i++) {
+            // A long tail, as delivery times and latencies have
+            values[i] = (int) Math.min(Integer.MAX_VALUE, Math.exp(random.nextDouble() * 12));
+        }
+
+        // Split the values unevenly, leaving one part empty
+        int[] ends = {0, 7, 1000, 1000, 31234, values.length};
+        StreamingStatistic merged = new StreamingStatistic();
+        for (int p = 1; p < ends.length; p++) {
+            StreamingStatistic part = new StreamingStatistic();
+            for (int i = ends[p - 1]; i < ends[p]; i++) {
+                part.record(values[i]);
+            }
+            merged.merge(part);
+        }
+        assertMatches(values, merged);
+    }
+
+    @Test
+    public void mergingIntoEmptyStatisticsCopiesThem() {
+        int[] values = {5, 3, 9, 0, 12};
+        StreamingStatistic part = new StreamingStatistic();
+        for (int value : values) {
+            part.record(value);
+        }
+        StreamingStatistic merged = new StreamingStatistic();
+        merged.merge(part);
+        assertMatches(values, merged);
+        assertMatches(values, part);
+    }
+
+    @Test
+    public void emptyStatisticsReportZero() {
+        StreamingStatistic empty = new StreamingStatistic();
+        empty.merge(new StreamingStatistic());
+        assertEquals(0, empty.count());
+        assertEquals(0, empty.min());
+        assertEquals(0, empty.max());
+        assertEquals(0, empty.percentile(50));
+        assertEquals(0.0, empty.mean(), 0.0);
+        assertEquals(0.0, empty.variance(), 0.0);
+    }
+
+    /**
+     * Check statistics against a direct computation over the values they recorded
+     * @param values every value recorded
+     * @param statistic the statistics
+     */
+    private static void assertMatches(int[] values, StreamingStatistic statistic) {
+        long sum = 0;
+        for (int value : values) {
+            sum += value;
+        }
+        double mean = (double) sum / values.length;
+        double squares = 0;
+        for (int value : values) {
+            squares += (value - mean) * (value - mean);
+        }
+        double variance = squares / (values.length - 1);
+
+        assertEquals(values.length, statistic.count());
+        assertEquals(sum, statistic.sum());
+        assertEquals(mean, statistic.mean(), mean * 1e-12);
+        assertEquals(variance, statistic.variance(), variance * 1e-9);
+
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        assertEquals(sorted[0], statistic.min());
+        assertEquals(sorted[sorted.length - 1], statistic.max());
+        for (double percentile : PERCENTILES) {
+            // The nearest rank value, which the histogram reports the top of the bucket holding
+            int rank = (int) Math.max(1, Math.ceil(percentile / 100.0 * sorted.length));
+            int exact = sorted[rank - 1];
+            int estimate = statistic.percentile(percentile);
+            assertTrue("p" + percentile + " " + estimate + " below " + exact, estimate >= exact);
+            assertTrue("p" + percentile + " " + estimate + " too far above " + exact,
+                    estimate <= exact + exact / 32 + 1);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/* SWEN30006 Software Modelling and Design
+ * Project 1 - Mailroom Blues
+ */
+package com.unimelb.swen30006.mailroom.samples;
+
+import com.unimelb.swen30006.mailroom.MailItem;
+import com.unimelb.swen30006.mailroom.SimulationClock;
+import com.unimelb.swen30006.mailroom.exceptions.SourceExhaustedException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Writes traces and reads them back, both directly and through a {@link MailDataset}. Traces are mapped in windows
+ * of eight records so that small traces cross window boundaries.
+ */
+public class MailTraceTest {
+
+    /** Eight records to a window */
+    private static final int WINDOW_BITS = 3;
+
+    private static final MailItem.MailType[] TYPES = MailItem.MailType.values();
+    private static final MailItem.MailPriority[] PRIORITIES = MailItem.MailPriority.values();
+
+    private Path path;
+
+    @Before
+    public void createFile() throws IOException {
+        this.path = Files.createTempFile("mail", ".trace");
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(this.path);
+    }
+
+    @Test
+    public void roundTripsAroundWindowBoundaries() throws Exception {
+        for (int numItems : new int[] {0, 1, 7, 8, 9, 16, 17, 29}) {
+            MailItem[] items = randomItems(numItems, numItems);
+            write(items);
+            MailTrace trace = MailTrace.open(this.path, WINDOW_BITS);
+            assertEquals(numItems, trace.numItems());
+
+            MailTrace.Cursor cursor = trace.cursor(null);
+            for (int i = 0; i < numItems; i++) {
+                assertTrue(cursor.hasNextMail());
+                assertSameItem("item " + i + " of " + numItems, items[i], cursor.nextItem(), true);
+            }
+            assertFalse(cursor.hasNextMail());
+            assertEquals(numItems, cursor.position());
+        }
+    }
+
+    @Test
+    public void releasesItemsOnlyOnceTheyArrive() throws Exception {
+        MailItem[] items = randomItems(29, 1);
+        write(items);
+        SimulationClock clock = new SimulationClock();
+        MailTrace.Cursor cursor = MailTrace.open(this.path, WINDOW_BITS).cursor(clock);
+        MailItem[] batch = new MailItem[items.length];
+        int read = 0;
+        for (long tick = 0; cursor.hasNextMail(); tick++) {
+            clock.advanceTo(tick);
+            int n = cursor.nextBatch(batch.length, batch, 0);
+            for (int i = 0; i < n; i++) {
+                assertEquals("item " + read + " released at " + tick, tick, batch[i].arrivalTime);
+                assertSameItem("item " + read, items[read], batch[i], true);
+                read++;
+            }
+            assertTrue(tick <= items[items.length - 1].arrivalTime);
+        }
+        assertEquals(items.length, read);
+    }
+
+    @Test(expected = SourceExhaustedException.class)
+    public void refusesToHandOutMailThatHasNotArrived() throws Exception {
+        write(new MailItem(TYPES[0], PRIORITIES[0], 1, MailTrace.ADDRESSEE, 1, 5));
+        SimulationClock clock = new SimulationClock();
+        MailTrace.Cursor cursor = MailTrace.open(this.path).cursor(clock);
+        clock.advanceTo(4);
+        assertTrue(cursor.hasNextMail());
+        assertFalse(cursor.hasArrivedMail());
+        cursor.nextItem();
+    }
+
+    @Test
+    public void replaysTheSameItemsThroughADataset() throws Exception {
+        MailItem[] items = randomItems(29, 3);
+        write(items);
+        MailTrace trace = MailTrace.open(this.path, WINDOW_BITS);
+        MailDataset dataset = MailDataset.record(trace.cursor(null), items.length + 1);
+        assertEquals(items.length, dataset.numItems());
+
+        MailDataset.Cursor cursor = dataset.cursor();
+        MailItem[] batch = new MailItem[10];
+        int read = 0;
+        int n;
+        while ((n = cursor.nextBatch(batch.length, batch, 0)) > 0) {
+            for (int i = 0; i < n; i++) {
+                // Datasets do not keep arrivals
+                assertSameItem("item " + read, items[read], batch[i], false);
+                read++;
+            }
+        }
+        assertEquals(items.length, read);
+    }
+
+    @Test
+    public void replaysFirstVersionTracesAtTickZero() throws Exception {
+        ByteBuffer file = ByteBuffer.allocate(MailTrace.HEADER_SIZE + 2 * MailTrace.V1_RECORD_SIZE);
+        file.putInt(MailTrace.MAGIC).putShort(MailTrace.V1).putShort((short) MailTrace.V1_RECORD_SIZE).putLong(2);
+        file.putInt(-3).put((byte) 0).put((byte) 1).putShort((short) 4);
+        file.putInt(12).put((byte) 1).put((byte) 0).putShort((short) 2);
+        file.flip();
+        try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.WRITE)) {
+            channel.write(file);
+        }
+
+        MailTrace.Cursor cursor = MailTrace.open(this.path).cursor(new SimulationClock());
+        assertSameItem("first", new MailItem(TYPES[0], PRIORITIES[1], -3, MailTrace.ADDRESSEE, 4, 0),
+                cursor.nextItem(), true);
+        assertSameItem("second", new MailItem(TYPES[1], PRIORITIES[0], 12, MailTrace.ADDRESSEE, 2, 0),
+                cursor.nextItem(), true);
+        assertFalse(cursor.hasNextMail());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedTraces() throws Exception {
+        write(randomItems(9, 1));
+        try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        MailTrace.open(this.path);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refusesItemsOutOfArrivalOrder() throws Exception {
+        try (MailTraceWriter writer = new MailTraceWriter(this.path)) {
+            writer.write(new MailItem(TYPES[0], PRIORITIES[0], 1, MailTrace.ADDRESSEE, 1, 5));
+            writer.write(new MailItem(TYPES[0], PRIORITIES[0], 1, MailTrace.ADDRESSEE, 1, 4));
+        }
+    }
+
+    /**
+     * Make items with random attributes, in order of arrival
+     * @param numItems the number of items
+     * @param seed the seed for the attributes
+     * @return the items
+     */
+    private static MailItem[] randomItems(int numItems, long seed) {
+        Random random = new Random(seed);
+        MailItem[] items = new MailItem[numItems];
+        long arrival = 0;
+        for (int i = 0; i < numItems; i++) {
+            arrival += random.nextInt(4);
+            items[i] = new MailItem(TYPES[random.nextInt(TYPES.length)], PRIORITIES[random.nextInt(PRIORITIES.length)],
+                    random.nextInt(200) - 100, MailTrace.ADDRESSEE, random.nextInt(Byte.MAX_VALUE + 1), arrival);
+        }
+        return items;
+    }
+
+    /**
+     * Write items to the trace file
+     * @param items the items, in order of arrival
+     */
+    private void write(MailItem... items) throws IOException {
+        try (MailTraceWriter writer = new MailTraceWriter(this.path)) {
+            for (MailItem item : items) {
+                writer.write(item);
+            }
+        }
+    }
+
+    /**
+     * Check an item read back matches the item written
+     * @param message a description of the item, for failure messages
+     * @param expected the item written
+     * @param actual the item read
+     * @param arrival whether the arrival should also match
+     */
+    private static void assertSameItem(String message, MailItem expected, MailItem actual, boolean arrival) {
+        assertEquals(message, expected.floor, actual.floor);
+        assertEquals(message, expected.packageType, actual.packageType);
+        assertEquals(message, expected.priority, actual.priority);
+        assertEquals(message, expected.size, actual.size);
+        assertEquals(message, MailTrace.ADDRESSEE, actual.adressee);
+        if (arrival) {
+            assertEquals(message, expected.arrivalTime, actual.arrivalTime);
+        }
+    }
+}